@@ -0,0 +1,42 @@
+package com.concertbooking.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count and writes one JSON result file per run, so
+ * thread scaling can be compared across commits. Remaining arguments are passed to JMH as usual:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.concertbooking.benchmark.BenchmarkRunner 1,2,4,8,16,32,64 BookingBenchmark
+ * </pre>
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        if (args.length == 0) {
+            System.err.println("usage: BenchmarkRunner <thread counts, comma separated> [JMH options]");
+            System.exit(1);
+        }
+        String[] jmhArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, jmhArgs, 0, jmhArgs.length);
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs);
+
+        for (String threadCount : args[0].split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-t" + threads + ".json");
+            new Runner(options.build()).run();
+        }
+    }
+}
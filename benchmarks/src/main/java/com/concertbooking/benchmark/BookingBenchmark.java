@@ -0,0 +1,134 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.model.Booking;
+import com.concertbooking.repository.impl.BookingRepositoryImpl;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.service.BookingService;
+import com.concertbooking.service.BookingServiceWithLock;
+import com.concertbooking.service.PipelinedBookingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book-then-cancel round trips against each booking engine. Each operation cancels and then deletes its
+ * own booking, so the venue and the booking repository stay in a steady state however long the run; failed
+ * attempts (seat taken) are counted, not thrown.
+ * Thread count comes from JMH's {@code -t} option, or from {@link BenchmarkRunner}'s sweep.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingBenchmark {
+    private static final String CONCERT_ID = "concert-1";
+
+    @Param({"1000", "10000", "100000"})
+    public int seatCount;
+
+    @Param({"1", "4"})
+    public int groupSize;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double contention;
+
+    private BookingRepositoryImpl bookings;
+    private BookingRepositoryImpl bookingsWithLock;
+    private BookingRepositoryImpl pipelinedBookings;
+    private BookingService bookingService;
+    private BookingServiceWithLock bookingServiceWithLock;
+    private PipelinedBookingEngine pipelinedEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConcertRepositoryImpl concertRepository = new ConcertRepositoryImpl();
+        concertRepository.addConcert(Fixtures.concert(CONCERT_ID, seatCount));
+        bookings = new BookingRepositoryImpl();
+        bookingsWithLock = new BookingRepositoryImpl();
+        pipelinedBookings = new BookingRepositoryImpl();
+        bookingService = new BookingService(bookings, concertRepository);
+        bookingServiceWithLock = new BookingServiceWithLock(bookingsWithLock, concertRepository);
+        pipelinedEngine = new PipelinedBookingEngine(pipelinedBookings, concertRepository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipelinedEngine.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params, ThreadParams threads) {
+            // Seeded per thread so every run replays the same request stream.
+            random = new SplittableRandom(31L * threads.getThreadIndex() + params.getThreads());
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long booked;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            rejected = 0;
+        }
+    }
+
+    @Benchmark
+    public Booking bookSeat(Requests requests, Outcomes outcomes) {
+        List<String> seatIds = Fixtures.pickGroup(requests.random, seatCount, groupSize, contention);
+        try {
+            Booking booking = bookingService.bookSeats(Fixtures.USER.getId(), CONCERT_ID, seatIds, Fixtures.USER);
+            bookingService.cancelBooking(booking.getId());
+            bookings.deleteBooking(booking.getId());
+            outcomes.booked++;
+            return booking;
+        } catch (SeatNotAvailableException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Booking bookSeatsWithLock(Requests requests, Outcomes outcomes) {
+        List<String> seatIds = Fixtures.pickGroup(requests.random, seatCount, groupSize, contention);
+        try {
+            Booking booking = bookingServiceWithLock.bookSeats(Fixtures.USER.getId(), CONCERT_ID, seatIds, Fixtures.USER);
+            bookingServiceWithLock.cancelBooking(booking.getId());
+            bookingsWithLock.deleteBooking(booking.getId());
+            outcomes.booked++;
+            return booking;
+        } catch (SeatNotAvailableException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Booking bookSeatsPipelined(Requests requests, Outcomes outcomes) {
+        List<String> seatIds = Fixtures.pickGroup(requests.random, seatCount, groupSize, contention);
+        try {
+            Booking booking = pipelinedEngine.bookSeats(Fixtures.USER.getId(), CONCERT_ID, seatIds, Fixtures.USER);
+            pipelinedEngine.cancelBooking(booking.getId());
+            pipelinedBookings.deleteBooking(booking.getId());
+            outcomes.booked++;
+            return booking;
+        } catch (SeatNotAvailableException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+}
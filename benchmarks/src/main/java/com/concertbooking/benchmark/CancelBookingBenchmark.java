@@ -0,0 +1,91 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.repository.impl.BookingRepositoryImpl;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.service.BookingService;
+import com.concertbooking.service.BookingServiceWithLock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of cancelling one booking. The booking is made in a per-invocation setup that JMH leaves out of
+ * the measurement, which is why this benchmark runs single-threaded in sample mode. JMH may run a setup
+ * without the benchmark call at an iteration boundary, so each setup first cancels the previous booking
+ * (a no-op if it was already cancelled) and then deletes it, so the repository stays the same size for
+ * the whole run.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CancelBookingBenchmark {
+    private static final String CONCERT_ID = "concert-1";
+
+    @Param({"1000", "100000"})
+    public int seatCount;
+
+    @Param({"1", "4"})
+    public int groupSize;
+
+    BookingRepositoryImpl bookingRepository;
+    BookingRepositoryImpl lockBookingRepository;
+    BookingService bookingService;
+    BookingServiceWithLock bookingServiceWithLock;
+    List<String> seatIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConcertRepositoryImpl concertRepository = new ConcertRepositoryImpl();
+        concertRepository.addConcert(Fixtures.concert(CONCERT_ID, seatCount));
+        bookingRepository = new BookingRepositoryImpl();
+        lockBookingRepository = new BookingRepositoryImpl();
+        bookingService = new BookingService(bookingRepository, concertRepository);
+        bookingServiceWithLock = new BookingServiceWithLock(lockBookingRepository, concertRepository);
+        seatIds = Fixtures.pickGroup(new SplittableRandom(7), seatCount, groupSize, 0.0);
+    }
+
+    @State(Scope.Thread)
+    public static class CasBooking {
+        String bookingId;
+
+        @Setup(Level.Invocation)
+        public void book(CancelBookingBenchmark benchmark) {
+            if (bookingId != null) {
+                benchmark.bookingService.cancelBooking(bookingId);
+                benchmark.bookingRepository.deleteBooking(bookingId);
+            }
+            bookingId = benchmark.bookingService
+                    .bookSeats(Fixtures.USER.getId(), CONCERT_ID, benchmark.seatIds, Fixtures.USER).getId();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LockBooking {
+        String bookingId;
+
+        @Setup(Level.Invocation)
+        public void book(CancelBookingBenchmark benchmark) {
+            if (bookingId != null) {
+                benchmark.bookingServiceWithLock.cancelBooking(bookingId);
+                benchmark.lockBookingRepository.deleteBooking(bookingId);
+            }
+            bookingId = benchmark.bookingServiceWithLock
+                    .bookSeats(Fixtures.USER.getId(), CONCERT_ID, benchmark.seatIds, Fixtures.USER).getId();
+        }
+    }
+
+    @Benchmark
+    public boolean cancelBooking(CasBooking booking) {
+        return bookingService.cancelBooking(booking.bookingId);
+    }
+
+    @Benchmark
+    public boolean cancelBookingWithLock(LockBooking booking) {
+        return bookingServiceWithLock.cancelBooking(booking.bookingId);
+    }
+}
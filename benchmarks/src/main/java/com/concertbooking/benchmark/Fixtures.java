@@ -0,0 +1,47 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatType;
+import com.concertbooking.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+final class Fixtures {
+    static final User USER = new User("user-1", "Bench User", "bench@example.com");
+    static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 20, 0);
+    // Seats that contended requests are drawn from: a small block everyone wants.
+    static final int HOT_SEATS = 64;
+
+    private Fixtures() {
+    }
+
+    static Concert concert(String id, int seatCount) {
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(new Seat(seatId(i), "R" + (i / 50) + "-" + (i % 50), SeatType.REGULAR, 50.0));
+        }
+        return new Concert(id, "Artist " + id, "Venue " + id, START, seats);
+    }
+
+    static String seatId(int index) {
+        return "seat-" + index;
+    }
+
+    /**
+     * Picks {@code groupSize} adjacent seat ids. With probability {@code contention} the group starts in
+     * the hot block shared by all threads, otherwise anywhere in the venue.
+     */
+    static List<String> pickGroup(SplittableRandom random, int seatCount, int groupSize, double contention) {
+        int range = random.nextDouble() < contention ? Math.min(HOT_SEATS, seatCount) : seatCount;
+        int start = random.nextInt(Math.max(1, range - groupSize + 1));
+        List<String> ids = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            ids.add(seatId(start + i));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,105 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.model.Booking;
+import com.concertbooking.repository.impl.BookingRepositoryImpl;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.service.BookingEngine;
+import com.concertbooking.service.BookingService;
+import com.concertbooking.service.BookingServiceWithLock;
+import com.concertbooking.service.PipelinedBookingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hot on-sale next to 1,000 quiet concerts. Most threads hammer a small block of the hot concert
+ * while the rest book single seats spread over the cold ones; sample mode reports each side's latency
+ * percentiles separately, and {@code coldConcerts}' p99 is the number to watch: it shows whether the
+ * hot concert makes bookings for other shows wait. Every booking is cancelled and deleted straight
+ * away, so the venues and the repository stay in a steady state.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class HotConcertBenchmark {
+    private static final String HOT_CONCERT_ID = "hot";
+    private static final int HOT_SEATS = 10_000;
+    private static final int COLD_CONCERTS = 1_000;
+    private static final int COLD_SEATS = 100;
+
+    @Param({"cas", "lock", "pipeline"})
+    public String engine;
+
+    private BookingRepositoryImpl bookingRepository;
+    private BookingEngine bookingEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConcertRepositoryImpl concertRepository = new ConcertRepositoryImpl();
+        concertRepository.addConcert(Fixtures.concert(HOT_CONCERT_ID, HOT_SEATS));
+        for (int i = 0; i < COLD_CONCERTS; i++) {
+            concertRepository.addConcert(Fixtures.concert(coldConcertId(i), COLD_SEATS));
+        }
+        bookingRepository = new BookingRepositoryImpl();
+        switch (engine) {
+            case "cas": bookingEngine = new BookingService(bookingRepository, concertRepository); break;
+            case "lock": bookingEngine = new BookingServiceWithLock(bookingRepository, concertRepository); break;
+            case "pipeline": bookingEngine = new PipelinedBookingEngine(bookingRepository, concertRepository); break;
+            default: throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (bookingEngine instanceof PipelinedBookingEngine) {
+            ((PipelinedBookingEngine) bookingEngine).close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threads) {
+            random = new SplittableRandom(31L * threads.getThreadIndex() + 17);
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Booking hotConcert(Requests requests) {
+        return bookAndCancel(HOT_CONCERT_ID, Fixtures.pickGroup(requests.random, HOT_SEATS, 2, 0.9));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public Booking coldConcerts(Requests requests) {
+        String concertId = coldConcertId(requests.random.nextInt(COLD_CONCERTS));
+        return bookAndCancel(concertId, Fixtures.pickGroup(requests.random, COLD_SEATS, 1, 0.0));
+    }
+
+    private Booking bookAndCancel(String concertId, List<String> seatIds) {
+        try {
+            Booking booking = bookingEngine.bookSeats(Fixtures.USER.getId(), concertId, seatIds, Fixtures.USER);
+            bookingEngine.cancelBooking(booking.getId());
+            bookingRepository.deleteBooking(booking.getId());
+            return booking;
+        } catch (SeatNotAvailableException e) {
+            return null;
+        }
+    }
+
+    private static String coldConcertId(int index) {
+        return "cold-" + index;
+    }
+}
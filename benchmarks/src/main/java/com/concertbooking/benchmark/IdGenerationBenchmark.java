@@ -0,0 +1,37 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.id.CompactIds;
+import com.concertbooking.id.TimeOrderedIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a booking id: the random UUID string the services used to create against a time-ordered
+ * 64-bit id, alone and rendered as text. Run with several threads ({@code -t}) to see contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1);
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public long timeOrdered() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String timeOrderedAsText() {
+        return CompactIds.format(generator.nextId());
+    }
+}
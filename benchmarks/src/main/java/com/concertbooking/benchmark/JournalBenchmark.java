@@ -0,0 +1,86 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.journal.BookingJournal;
+import com.concertbooking.journal.SyncMode;
+import com.concertbooking.model.Booking;
+import com.concertbooking.repository.impl.BookingRepositoryImpl;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.repository.impl.JournaledBookingRepository;
+import com.concertbooking.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable book-then-cancel round trips: two journal appends, each fsynced, per operation. Compares an
+ * fsync per append with group commit as the thread count grows. The journal lives under
+ * {@code java.io.tmpdir}, so point that at the disk you care about.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    private static final String CONCERT_ID = "concert-1";
+    private static final int SEAT_COUNT = 100_000;
+
+    @Param({"PER_OPERATION", "GROUP_COMMIT"})
+    public SyncMode syncMode;
+
+    private Path directory;
+    private JournaledBookingRepository bookingRepository;
+    private BookingService bookingService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("booking-journal-bench");
+        ConcertRepositoryImpl concertRepository = new ConcertRepositoryImpl();
+        concertRepository.addConcert(Fixtures.concert(CONCERT_ID, SEAT_COUNT));
+        bookingRepository = new JournaledBookingRepository(new BookingRepositoryImpl(), new BookingJournal(directory, syncMode));
+        bookingService = new BookingService(bookingRepository, concertRepository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        bookingRepository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params, ThreadParams threads) {
+            random = new SplittableRandom(31L * threads.getThreadIndex() + params.getThreads());
+        }
+    }
+
+    @Benchmark
+    public Booking bookAndCancel(Requests requests) {
+        List<String> seatIds = Fixtures.pickGroup(requests.random, SEAT_COUNT, 1, 0.0);
+        try {
+            Booking booking = bookingService.bookSeats(Fixtures.USER.getId(), CONCERT_ID, seatIds, Fixtures.USER);
+            bookingService.cancelBooking(booking.getId());
+            return booking;
+        } catch (SeatNotAvailableException e) {
+            return null;
+        }
+    }
+}
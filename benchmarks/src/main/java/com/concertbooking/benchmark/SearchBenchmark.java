@@ -0,0 +1,74 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.model.Concert;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Repository searches against the linear scan they replaced. Artist names are three random words
+ * drawn from a small vocabulary, so common terms have large posting sets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final String[] WORDS = {
+            "the", "black", "red", "hot", "chili", "arctic", "monkeys", "daft", "punk", "royal",
+            "blood", "foo", "fighters", "queens", "stone", "age", "band", "orchestra", "quartet", "trio"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int concertCount;
+
+    @Param({"Royal Blood 42"})
+    public String artist;
+
+    @Param({"roy", "royal blo"})
+    public String prefix;
+
+    private ConcertRepositoryImpl concertRepository;
+    private List<Concert> concerts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        concertRepository = new ConcertRepositoryImpl();
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < concertCount; i++) {
+            String artistName = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + (i % 5000);
+            concertRepository.addConcert(new Concert("concert-" + i, artistName, "Arena " + (i % 2000),
+                    Fixtures.START.plusMinutes(random.nextInt(500_000)), List.of()));
+        }
+        concerts = concertRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Concert> scanByArtist() {
+        return concerts.stream()
+                .filter(concert -> concert.getArtistName().equals(artist))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Concert> searchByArtist() {
+        return concertRepository.searchByArtist(artist);
+    }
+
+    @Benchmark
+    public List<Concert> searchByArtistPrefix() {
+        return concertRepository.searchByArtistPrefix(prefix, 20);
+    }
+
+    @Benchmark
+    public List<Concert> searchByVenue() {
+        return concertRepository.searchByVenue("arena 7");
+    }
+}
@@ -0,0 +1,63 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolving requested seat ids to seats: the per-concert index against the stream-and-contains scan
+ * the booking services used before it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatLookupBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int seatCount;
+
+    @Param({"4"})
+    public int groupSize;
+
+    private Concert concert;
+    private List<List<String>> requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        concert = Fixtures.concert("concert-1", seatCount);
+        SplittableRandom random = new SplittableRandom(3);
+        requests = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            requests.add(Fixtures.pickGroup(random, seatCount, groupSize, 0.0));
+        }
+    }
+
+    private List<String> nextRequest() {
+        return requests.get(next++ & 1023);
+    }
+
+    @Benchmark
+    public List<Seat> scan() {
+        List<String> seatIds = nextRequest();
+        return concert.getSeats().stream().filter(seat -> seatIds.contains(seat.getId())).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Seat> index() {
+        List<String> seatIds = nextRequest();
+        List<Seat> seats = new ArrayList<>(seatIds.size());
+        for (String seatId : seatIds) {
+            seats.add(concert.getSeat(seatId));
+        }
+        return seats;
+    }
+}
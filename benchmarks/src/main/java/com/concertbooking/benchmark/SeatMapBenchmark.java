@@ -0,0 +1,87 @@
+package com.concertbooking.benchmark;
+
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatMap;
+import com.concertbooking.model.SeatStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat-map reads and what publishing seat maps costs writers. Reads count the booked seats of the whole
+ * venue, live seat by seat or from the published map. Writes book a random pair of seats and release
+ * it again, on a concert without a seat map and on one whose map is being kept current.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatMapBenchmark {
+    @Param({"2000", "50000"})
+    public int seatCount;
+
+    private Concert plain;
+    private Concert mapped;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = Fixtures.concert("concert-1", seatCount);
+        mapped = Fixtures.concert("concert-2", seatCount);
+        // Book every third seat so reads see a mix of states.
+        for (int i = 0; i < seatCount; i += 3) {
+            plain.getSeatAt(i).book();
+            mapped.getSeatAt(i).book();
+        }
+        mapped.getSeatMap();
+    }
+
+    @Benchmark
+    public int readLive() {
+        int booked = 0;
+        for (Seat seat : mapped.getSeats()) {
+            if (seat.getStatus() == SeatStatus.BOOKED) {
+                booked++;
+            }
+        }
+        return booked;
+    }
+
+    @Benchmark
+    public int readSeatMap() {
+        SeatMap map = mapped.getSeatMap();
+        int booked = 0;
+        for (int slot = 0; slot < map.size(); slot++) {
+            if (map.getStatus(slot) == SeatStatus.BOOKED) {
+                booked++;
+            }
+        }
+        return booked;
+    }
+
+    @Benchmark
+    public boolean bookAndRelease() {
+        return bookAndRelease(plain);
+    }
+
+    @Benchmark
+    public boolean bookAndReleaseWithSeatMap() {
+        return bookAndRelease(mapped);
+    }
+
+    private static boolean bookAndRelease(Concert concert) {
+        int start = ThreadLocalRandom.current().nextInt(concert.getSeatCount() - 1);
+        List<Seat> pair = concert.getSeats().subList(start, start + 2);
+        if (!concert.claimSeats(pair, SeatStatus.BOOKED)) {
+            return false;
+        }
+        for (Seat seat : pair) {
+            seat.release();
+        }
+        return true;
+    }
+}
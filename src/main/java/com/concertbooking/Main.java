@@ -24,7 +24,7 @@ public class Main {
     private static final BookingService originalBookingService = new BookingService(new BookingRepositoryImpl(),
             new ConcertRepositoryImpl());
     private static final BookingServiceWithLock bookingServiceWithReentrantLock = new BookingServiceWithLock(
-            new BookingRepository(), new ConcertRepository());
+            new BookingRepositoryImpl(), new ConcertRepositoryImpl());
 
     // Global storage for users to be accessible by both services/tests
     private static final Map<String, User> users = new HashMap<>();
@@ -200,7 +200,7 @@ public class Main {
             return;
         }
 
-        Optional<Concert> concertOpt = repoForTest.searchConcertsByArtist("Band X").stream().findFirst();
+        Optional<Concert> concertOpt = repoForTest.searchByArtist("Band X").stream().findFirst();
         if (concertOpt.isEmpty()) {
             System.out.println("Concurrency test setup failed: 'Band X' concert not found in " + testType
                     + " service's repository.");
@@ -0,0 +1,230 @@
+package com.concertbooking.admission;
+
+import com.concertbooking.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FIFO waiting room that lets buyers through to the booking service at a controlled rate.
+ *
+ * <p>Every arrival takes the next ticket number; a token bucket moves an admission frontier along the
+ * ticket numbers, and a ticket is admitted once the frontier has passed it. That makes a queue position
+ * one subtraction and lets admission run lazily whenever a waiter checks in, with no thread of its own.
+ *
+ * <p>The admission rate tunes itself from the booking latency callers report with {@link #recordLatency}.
+ * Every quarter second the 90th percentile of the window is compared with the target: above it the
+ * rate backs off multiplicatively, below it (with a queue still waiting) it creeps up, which holds the
+ * booking service near its best throughput instead of letting contention drag it down.
+ */
+public final class WaitingRoom {
+    private static final long TUNING_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final int MIN_TUNING_SAMPLES = 20;
+    private static final double BACKOFF_FACTOR = 0.7;
+    private static final double GROWTH_FACTOR = 1.1;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final double minRate;
+    private final double maxRate;
+    private final int burst;
+    private final long targetLatencyNanos;
+    private final AtomicLong nextTicket = new AtomicLong();
+    // Tickets numbered below the frontier are admitted.
+    private volatile long frontier;
+    // Tickets given up before the frontier reached them; admission skips them without spending a token.
+    private final PriorityQueue<Long> abandoned = new PriorityQueue<>();
+    private volatile int abandonedCount;
+    private volatile double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private final LatencyHistogram window = new LatencyHistogram();
+    private final AtomicLong windowStartNanos = new AtomicLong(System.nanoTime());
+
+    public WaitingRoom(double initialRatePerSecond, double minRatePerSecond, double maxRatePerSecond, int burst, Duration targetLatency) {
+        if (minRatePerSecond <= 0 || minRatePerSecond > initialRatePerSecond || initialRatePerSecond > maxRatePerSecond) {
+            throw new IllegalArgumentException("Admission rates must satisfy 0 < min <= initial <= max");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        if (targetLatency.isNegative() || targetLatency.isZero()) {
+            throw new IllegalArgumentException("Target latency must be positive");
+        }
+        this.ratePerSecond = initialRatePerSecond;
+        this.minRate = minRatePerSecond;
+        this.maxRate = maxRatePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.targetLatencyNanos = targetLatency.toNanos();
+    }
+
+    /**
+     * Joins the back of the queue.
+     */
+    public Ticket enter() {
+        Ticket ticket = new Ticket(this, nextTicket.getAndIncrement());
+        admit();
+        return ticket;
+    }
+
+    /**
+     * Waits until the ticket is admitted or {@code maxWait} runs out, returning whether it was admitted.
+     */
+    public boolean awaitAdmission(Ticket ticket, Duration maxWait) throws InterruptedException {
+        checkOwner(ticket);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            if (ticket.number < frontier) {
+                return true;
+            }
+            admit();
+            long position = ticket.number - frontier;
+            if (position < 0) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            // Sleep roughly until our turn comes round, but wake often enough to notice a rate change.
+            long estimate = (long) ((position + 1) * 1e9 / ratePerSecond);
+            LockSupport.parkNanos(Math.min(remaining, Math.min(estimate, MAX_PARK_NANOS)));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Uses an admitted ticket up, returning whether it could be: a ticket admits exactly one request, so
+     * this fails for one that has not been admitted yet, was used before or was given up.
+     */
+    public boolean redeem(Ticket ticket) {
+        checkOwner(ticket);
+        return positionOf(ticket) == 0 && ticket.spent.compareAndSet(false, true);
+    }
+
+    /**
+     * Gives the ticket up. A ticket still waiting is skipped when its turn comes, and one already admitted
+     * returns its admission, so either way the slot goes to the next buyer. Leaving again, or after the
+     * ticket was redeemed, does nothing.
+     */
+    public synchronized void leave(Ticket ticket) {
+        checkOwner(ticket);
+        if (!ticket.spent.compareAndSet(false, true)) {
+            return;
+        }
+        if (ticket.number < frontier) {
+            tokens = Math.min(burst, tokens + 1);
+        } else {
+            abandoned.add(ticket.number);
+            abandonedCount = abandoned.size();
+        }
+    }
+
+    /**
+     * Place in the queue: 1 for the next ticket to be admitted, 0 once this one has been.
+     */
+    public long positionOf(Ticket ticket) {
+        checkOwner(ticket);
+        admit();
+        return Math.max(0L, ticket.number - frontier + 1);
+    }
+
+    public long getQueueLength() {
+        return Math.max(0L, nextTicket.get() - frontier - abandonedCount);
+    }
+
+    public double getAdmissionRate() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Reports how long an admitted request took in the booking service.
+     */
+    public void recordLatency(long nanos) {
+        window.record(nanos);
+        long now = System.nanoTime();
+        long start = windowStartNanos.get();
+        if (now - start >= TUNING_WINDOW_NANOS && windowStartNanos.compareAndSet(start, now)) {
+            // Samples recorded while we read and reset fall into one window or the other; close enough.
+            long samples = window.getCount();
+            long p90 = window.getValueAtPercentile(90.0);
+            window.reset();
+            if (samples >= MIN_TUNING_SAMPLES) {
+                tune(p90);
+            }
+        }
+    }
+
+    private synchronized void tune(long p90Nanos) {
+        if (p90Nanos > targetLatencyNanos) {
+            ratePerSecond = Math.max(minRate, ratePerSecond * BACKOFF_FACTOR);
+        } else if (getQueueLength() > 0) {
+            ratePerSecond = Math.min(maxRate, ratePerSecond * GROWTH_FACTOR + 1);
+        }
+    }
+
+    private synchronized void admit() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * ratePerSecond / 1e9);
+        lastRefillNanos = now;
+        long end = nextTicket.get();
+        long next = frontier;
+        while (next < end) {
+            Long skipped = abandoned.peek();
+            if (skipped != null && skipped == next) {
+                abandoned.poll();
+                next++;
+                continue;
+            }
+            // Admit up to the next abandoned ticket, as far as the tokens go.
+            long admissible = Math.min((long) tokens, (skipped == null ? end : skipped) - next);
+            if (admissible <= 0) {
+                break;
+            }
+            next += admissible;
+            tokens -= admissible;
+        }
+        frontier = next;
+        abandonedCount = abandoned.size();
+    }
+
+    private void checkOwner(Ticket ticket) {
+        if (ticket.room != this) {
+            throw new IllegalArgumentException("Ticket belongs to a different waiting room");
+        }
+    }
+
+    public static final class Ticket {
+        private final WaitingRoom room;
+        private final long number;
+        // Set once the ticket is redeemed or given up.
+        private final AtomicBoolean spent = new AtomicBoolean();
+
+        private Ticket(WaitingRoom room, long number) {
+            this.room = room;
+            this.number = number;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public long getPosition() {
+            return room.positionOf(this);
+        }
+
+        public boolean isAdmitted() {
+            return getPosition() == 0;
+        }
+
+        public void leave() {
+            room.leave(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.concertbooking.concurrent;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of requests by idempotency key, so a retried request gets the first attempt's
+ * result instead of running again.
+ *
+ * <p>Keys hash onto independently locked stripes. Each stripe is a segmented LRU: a new key enters the
+ * probation segment and is promoted to the protected segment when it is seen again. Protected keys may
+ * fill 80% of the stripe and probation gets the rest, so a burst of one-off keys cannot flush the keys
+ * that clients are actually retrying. Entries also expire a fixed time after they were added. A retry
+ * that arrives while the first attempt is still running waits for that attempt rather than starting
+ * another.
+ */
+public final class IdempotencyCache<V> {
+    private static final int STRIPES = 16;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Stripe<V>[] stripes;
+    private final long ttlNanos;
+    private final Predicate<RuntimeException> rememberFailure;
+
+    /**
+     * @param rememberFailure which failures to replay to retries; any other failure is forgotten, so a
+     *                        retry runs the request again
+     */
+    public IdempotencyCache(int capacity, Duration ttl, Predicate<RuntimeException> rememberFailure) {
+        if (capacity < STRIPES) {
+            throw new IllegalArgumentException("Capacity must be at least " + STRIPES);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.rememberFailure = rememberFailure;
+        @SuppressWarnings("unchecked")
+        Stripe<V>[] stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(capacity / STRIPES);
+        }
+        this.stripes = stripes;
+    }
+
+    /**
+     * Runs {@code action} unless {@code key} has been seen, returning or throwing the first attempt's
+     * outcome if it has. {@code request} describes what was asked for; reusing a key for a different
+     * request is rejected with {@link IllegalArgumentException}.
+     */
+    public V execute(String key, Object request, Supplier<V> action) {
+        Stripe<V> stripe = stripeFor(key);
+        long now = System.nanoTime();
+        Entry<V> entry;
+        boolean first = false;
+        synchronized (stripe) {
+            entry = stripe.get(key, now);
+            if (entry == null) {
+                entry = new Entry<>(request, now + ttlNanos);
+                stripe.add(key, entry);
+                first = true;
+            }
+        }
+        if (!Objects.equals(entry.request, request)) {
+            throw new IllegalArgumentException("Idempotency key " + key + " was already used for a different request");
+        }
+        if (first) {
+            try {
+                entry.result.complete(action.get());
+            } catch (Throwable e) {
+                // Anything but a remembered failure, errors included, must not leave retries waiting on this entry.
+                if (!(e instanceof RuntimeException && rememberFailure.test((RuntimeException) e))) {
+                    synchronized (stripe) {
+                        stripe.remove(key, entry);
+                    }
+                }
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.probation.size() + stripe.protectedSegment.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<V> stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Entry<V> {
+        private final Object request;
+        private final long expiresAt;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        Entry(Object request, long expiresAt) {
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Both segments are access-ordered, eldest first; guarded by the stripe's monitor.
+    private static final class Stripe<V> {
+        private final int capacity;
+        private final int protectedCapacity;
+        private final LinkedHashMap<String, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, capacity * PROTECTED_PERCENT / 100);
+        }
+
+        Entry<V> get(String key, long now) {
+            Entry<V> entry = protectedSegment.get(key);
+            if (entry == null) {
+                entry = probation.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (now - entry.expiresAt < 0) {
+                    promote(key, entry);
+                }
+            }
+            if (now - entry.expiresAt >= 0) {
+                protectedSegment.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        void add(String key, Entry<V> entry) {
+            probation.put(key, entry);
+            evictEldest(probation, capacity - protectedSegment.size(), null);
+        }
+
+        void remove(String key, Entry<V> entry) {
+            probation.remove(key, entry);
+            protectedSegment.remove(key, entry);
+        }
+
+        private void promote(String key, Entry<V> entry) {
+            protectedSegment.put(key, entry);
+            evictEldest(protectedSegment, protectedCapacity, probation);
+            evictEldest(probation, capacity - protectedSegment.size(), null);
+        }
+
+        // Drops the eldest entries beyond capacity, demoting them into the given segment if there is one.
+        private void evictEldest(LinkedHashMap<String, Entry<V>> segment, int capacity, LinkedHashMap<String, Entry<V>> demoteTo) {
+            Iterator<Map.Entry<String, Entry<V>>> eldest = segment.entrySet().iterator();
+            while (segment.size() > capacity) {
+                Map.Entry<String, Entry<V>> victim = eldest.next();
+                eldest.remove();
+                if (demoteTo != null) {
+                    demoteTo.put(victim.getKey(), victim.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.concertbooking.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent map from primitive {@code long} keys to objects, with no boxing and no per-entry node.
+ *
+ * <p>Keys hash onto independently locked stripes, each an open-addressing table with linear probing kept
+ * at most three quarters full. Writes take the stripe's write lock; reads are optimistic and only fall back to the
+ * read lock if a write overlapped them. An entry costs a key slot and a reference slot, 16 to 32 bytes
+ * with the table's slack, against a 32-byte node plus a table slot for a {@code ConcurrentHashMap}
+ * entry, and its key, which here is free.
+ */
+public final class LongObjectMap<V> {
+    private static final int STRIPES = 64;
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+    private static final int INITIAL_CAPACITY = 16;
+
+    @SuppressWarnings("unchecked")
+    private final Stripe<V>[] stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+
+    public LongObjectMap() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return stripes[(int) (hash >>> STRIPE_SHIFT)].get(key, (int) hash);
+    }
+
+    /**
+     * Replaces the value for {@code key} with {@code remapping} applied to the current one ({@code null} if
+     * absent), removing the entry if the result is {@code null}, and returns the result. The function runs
+     * under the stripe's write lock, so it must be short; anything it throws leaves the map unchanged.
+     */
+    public V compute(long key, UnaryOperator<V> remapping) {
+        long hash = mix(key);
+        return stripes[(int) (hash >>> STRIPE_SHIFT)].compute(key, (int) hash, remapping);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies the values out. Each stripe is copied atomically, but not all of them at the same instant.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                for (Object value : stripe.values) {
+                    if (value != null) {
+                        values.add(cast(value));
+                    }
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    // Time-ordered ids differ mostly in their low bits, so spread them over the stripe and slot bits.
+    private static long mix(long key) {
+        long h = key * 0x9E37_79B9_7F4A_7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+
+    private static final class Stripe<V> {
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[INITIAL_CAPACITY];
+        // A null value marks an empty slot.
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                Object value = find(keys, values, key, hash);
+                if (lock.validate(stamp)) {
+                    return cast(value);
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return cast(find(keys, values, key, hash));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Tolerates tables torn by a concurrent write: the probe is bounded and the caller validates.
+        private static Object find(long[] keys, Object[] values, long key, int hash) {
+            int mask = Math.min(keys.length, values.length) - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        V compute(long key, int hash, UnaryOperator<V> remapping) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int slot = hash & mask;
+                while (values[slot] != null && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                V existing = cast(values[slot]);
+                V updated = remapping.apply(existing);
+                if (updated == null) {
+                    if (existing != null) {
+                        delete(slot);
+                    }
+                } else if (existing != null) {
+                    values[slot] = updated;
+                } else {
+                    keys[slot] = key;
+                    values[slot] = updated;
+                    if (++size * 4 > keys.length * 3) {
+                        resize();
+                    }
+                }
+                return updated;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Backward-shift deletion: pull later entries of the probe run into the gap so no tombstones are needed.
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            values[slot] = null;
+            size--;
+            int gap = slot;
+            int next = (slot + 1) & mask;
+            while (values[next] != null) {
+                int home = (int) mix(keys[next]) & mask;
+                // Move the entry back unless its home lies cyclically in (gap, next].
+                boolean homeAfterGap = gap <= next ? (home > gap && home <= next) : (home > gap || home <= next);
+                if (!homeAfterGap) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    values[next] = null;
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[oldKeys.length * 2];
+            Object[] newValues = new Object[oldKeys.length * 2];
+            int mask = newKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+    }
+}
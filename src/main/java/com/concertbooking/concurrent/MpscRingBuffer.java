@@ -0,0 +1,87 @@
+package com.concertbooking.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer.
+ *
+ * <p>Producers claim a sequence number with one CAS on the tail and publish into that slot; the single
+ * consumer walks the head without any atomic read-modify-write. An empty slot is {@code null}, so a slot
+ * a producer has claimed but not yet filled simply reads as the end of the batch.
+ */
+public final class MpscRingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Adds an element, or returns {@code false} if the buffer is full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element is null");
+        }
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code limit} elements to {@code consumer} in order and returns how many it took.
+     * Consumer thread only.
+     */
+    public int drain(Consumer<E> consumer, int limit) {
+        long sequence = head.get();
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) (sequence & mask);
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            consumer.accept(element);
+            sequence++;
+            drained++;
+        }
+        head.lazySet(sequence);
+        return drained;
+    }
+
+    /**
+     * Removes and returns the oldest element, or {@code null} if there is none. Consumer thread only.
+     */
+    public E poll() {
+        long sequence = head.get();
+        int index = (int) (sequence & mask);
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(sequence + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return slots.get((int) (head.get() & mask)) == null;
+    }
+}
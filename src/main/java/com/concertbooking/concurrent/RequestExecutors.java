@@ -0,0 +1,79 @@
+package com.concertbooking.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for running one task per request.
+ *
+ * <p>The project targets Java 17, so virtual threads are looked up reflectively: on a Java 21+ runtime
+ * {@link #newPerRequestExecutor} returns a virtual-thread-per-task executor, on older runtimes a
+ * fixed pool of daemon platform threads.
+ */
+public final class RequestExecutors {
+    // Thread.isVirtual(), or null on runtimes that have no virtual threads.
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private RequestExecutors() {
+    }
+
+    public static ExecutorService newPerRequestExecutor(String name, int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Executors.newFixedThreadPool(fallbackThreads, daemonThreads(name));
+        } catch (InvocationTargetException e) {
+            // Java 19/20 expose the method but throw unless preview features are enabled.
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return Executors.newFixedThreadPool(fallbackThreads, daemonThreads(name));
+            }
+            throw new IllegalStateException("Could not create virtual thread executor", e.getCause());
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Runtime.version().feature() >= 21;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the thread is virtual; always {@code false} on runtimes without virtual threads.
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not tell whether " + thread + " is virtual", e);
+        }
+    }
+
+    public static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
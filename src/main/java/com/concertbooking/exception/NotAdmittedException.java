@@ -0,0 +1,13 @@
+package com.concertbooking.exception;
+
+/**
+ * A buyer gave up waiting in a concert's waiting room, timed out or interrupted, before being admitted.
+ * No seat was looked at, so unlike other {@link SeatNotAvailableException}s a retry may well succeed.
+ */
+public class NotAdmittedException extends SeatNotAvailableException {
+    private static final long serialVersionUID = 1L;
+
+    public NotAdmittedException(String message) {
+        super(message);
+    }
+}
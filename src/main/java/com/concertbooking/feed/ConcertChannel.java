@@ -0,0 +1,193 @@
+package com.concertbooking.feed;
+
+import com.concertbooking.concurrent.MpscRingBuffer;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.SeatStateListener;
+import com.concertbooking.model.SeatStateStore;
+import com.concertbooking.model.SeatStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Collects one concert's changes between two batches of a {@link SeatChangeFeed} and hands the batches to
+ * its subscribers.
+ *
+ * <p>Seat transitions are coalesced where they happen: each sets its slot's bit in a changed-slot bitmap,
+ * so any number of transitions between two batches costs one bit per seat and the bitmap can never
+ * overflow. The batch reads each marked seat's status when it is made. Booking changes go through a
+ * bounded queue; if it fills up, every subscriber is sent a snapshot instead.
+ */
+final class ConcertChannel implements SeatStateListener {
+    private static final SeatFeedSubscription[] NO_SUBSCRIBERS = {};
+
+    private final Concert concert;
+    private final SeatStateStore states;
+    private final Function<String, List<Booking>> bookingsByConcert;
+    private final AtomicLongArray changedSlots;
+    private final MpscRingBuffer<Booking> bookingChanges;
+    private volatile SeatFeedSubscription[] subscribers = NO_SUBSCRIBERS;
+    private volatile boolean changed;
+    private volatile boolean bookingsOverflowed;
+    // Feed thread only.
+    private long sequence;
+
+    ConcertChannel(Concert concert, Function<String, List<Booking>> bookingsByConcert, int bookingQueueCapacity) {
+        this.concert = concert;
+        this.states = concert.getSeatStates();
+        this.bookingsByConcert = bookingsByConcert;
+        this.changedSlots = new AtomicLongArray((states.size() + 63) / 64);
+        this.bookingChanges = new MpscRingBuffer<>(bookingQueueCapacity);
+    }
+
+    String getConcertId() {
+        return concert.getId();
+    }
+
+    synchronized void add(SeatFeedSubscription subscription) {
+        SeatFeedSubscription[] current = subscribers;
+        SeatFeedSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscribers = updated;
+    }
+
+    synchronized void remove(SeatFeedSubscription subscription) {
+        SeatFeedSubscription[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                SeatFeedSubscription[] updated = new SeatFeedSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscribers = updated;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onTransition(int slot, SeatStatus from, SeatStatus to) {
+        if (subscribers.length > 0) {
+            mark(slot >>> 6, 1L << slot);
+            changed = true;
+        }
+    }
+
+    @Override
+    public void onTransition(int[] slots, SeatStatus from, SeatStatus to) {
+        if (subscribers.length == 0) {
+            return;
+        }
+        // Slots are sorted, so set each bitmap word's bits with one CAS.
+        int i = 0;
+        while (i < slots.length) {
+            int index = slots[i] >>> 6;
+            long bits = 0L;
+            for (; i < slots.length && slots[i] >>> 6 == index; i++) {
+                bits |= 1L << slots[i];
+            }
+            mark(index, bits);
+        }
+        changed = true;
+    }
+
+    @Override
+    public void onRestore() {
+        for (SeatFeedSubscription subscription : subscribers) {
+            subscription.requestSnapshot();
+        }
+    }
+
+    void bookingChanged(Booking booking) {
+        if (subscribers.length > 0) {
+            if (!bookingChanges.offer(booking)) {
+                bookingsOverflowed = true;
+            }
+            changed = true;
+        }
+    }
+
+    private void mark(int index, long bits) {
+        while (true) {
+            long word = changedSlots.get(index);
+            if ((word & bits) == bits || changedSlots.compareAndSet(index, word, word | bits)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Makes this interval's batch and delivers it, or a snapshot to subscribers that need one. Feed
+     * thread only.
+     */
+    void publish() {
+        SeatFeedSubscription[] current = subscribers;
+        if (bookingsOverflowed) {
+            bookingsOverflowed = false;
+            for (SeatFeedSubscription subscription : current) {
+                subscription.requestSnapshot();
+            }
+        }
+        SeatChangeBatch delta = null;
+        if (changed) {
+            changed = false;
+            delta = takeChanges();
+        }
+        SeatChangeBatch snapshot = null;
+        for (SeatFeedSubscription subscription : current) {
+            if (subscription.needsSnapshot()) {
+                if (snapshot == null) {
+                    snapshot = snapshot();
+                }
+                subscription.deliver(snapshot);
+            } else if (delta != null) {
+                subscription.deliver(delta);
+            }
+        }
+    }
+
+    private SeatChangeBatch takeChanges() {
+        int count = 0;
+        long[] taken = new long[changedSlots.length()];
+        for (int i = 0; i < taken.length; i++) {
+            if (changedSlots.get(i) != 0L) {
+                taken[i] = changedSlots.getAndSet(i, 0L);
+                count += Long.bitCount(taken[i]);
+            }
+        }
+        int[] slots = new int[count];
+        byte[] statuses = new byte[count];
+        int next = 0;
+        for (int i = 0; i < taken.length; i++) {
+            for (long bits = taken[i]; bits != 0L; bits &= bits - 1) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(bits);
+                slots[next] = slot;
+                statuses[next++] = (byte) states.get(slot).ordinal();
+            }
+        }
+        Map<String, BookingStatus> bookings = new LinkedHashMap<>();
+        bookingChanges.drain(booking -> bookings.put(booking.getId(), booking.getStatus()), Integer.MAX_VALUE);
+        if (count == 0 && bookings.isEmpty()) {
+            return null;
+        }
+        return new SeatChangeBatch(concert.getId(), ++sequence, slots, statuses, Collections.unmodifiableMap(bookings));
+    }
+
+    private SeatChangeBatch snapshot() {
+        byte[] statuses = new byte[states.size()];
+        for (int slot = 0; slot < statuses.length; slot++) {
+            statuses[slot] = (byte) states.get(slot).ordinal();
+        }
+        Map<String, BookingStatus> bookings = new LinkedHashMap<>();
+        for (Booking booking : bookingsByConcert.apply(concert.getId())) {
+            bookings.put(booking.getId(), booking.getStatus());
+        }
+        return new SeatChangeBatch(concert.getId(), ++sequence, null, statuses, Collections.unmodifiableMap(bookings));
+    }
+}
@@ -0,0 +1,78 @@
+package com.concertbooking.feed;
+
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.SeatStatus;
+
+import java.util.Map;
+
+/**
+ * One delivery of a {@link SeatChangeFeed}: the seats and bookings of a concert that changed since the
+ * previous batch, each with its status when the batch was made. A seat or booking that changed several
+ * times appears once. A {@link #isSnapshot snapshot} batch instead lists every seat of the concert and
+ * every booking for it, and replaces whatever the subscriber had.
+ */
+public final class SeatChangeBatch {
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+
+    private final String concertId;
+    private final long sequence;
+    // Null in a snapshot, where entry i is slot i.
+    private final int[] slots;
+    private final byte[] statuses;
+    private final Map<String, BookingStatus> bookings;
+
+    SeatChangeBatch(String concertId, long sequence, int[] slots, byte[] statuses, Map<String, BookingStatus> bookings) {
+        this.concertId = concertId;
+        this.sequence = sequence;
+        this.slots = slots;
+        this.statuses = statuses;
+        this.bookings = bookings;
+    }
+
+    public String getConcertId() {
+        return concertId;
+    }
+
+    /**
+     * Increases from one batch to the next for a concert.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isSnapshot() {
+        return slots == null;
+    }
+
+    /**
+     * Number of seats in the batch.
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * Slot, as {@link com.concertbooking.model.Seat#getSlot()} numbers them, of the {@code i}-th seat.
+     */
+    public int getSlot(int i) {
+        if (slots == null) {
+            if (i < 0 || i >= statuses.length) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of range for " + statuses.length + " seats");
+            }
+            return i;
+        }
+        return slots[i];
+    }
+
+    public SeatStatus getStatus(int i) {
+        return STATUSES[statuses[i]];
+    }
+
+    /**
+     * Bookings confirmed or cancelled since the previous batch, by booking id; in a snapshot, every
+     * booking for the concert.
+     */
+    public Map<String, BookingStatus> getBookingChanges() {
+        return bookings;
+    }
+}
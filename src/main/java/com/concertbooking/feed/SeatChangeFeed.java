@@ -0,0 +1,112 @@
+package com.concertbooking.feed;
+
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.Concert;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes seat and booking changes to per-concert subscribers, so front ends can keep a seat map current
+ * without re-reading every seat.
+ *
+ * <p>Changes are gathered as they happen and sent once per interval as one {@link SeatChangeBatch} per
+ * concert, with repeated changes to the same seat or booking merged. Concerts start being watched when
+ * first subscribed to, so the rest pay nothing.
+ */
+public final class SeatChangeFeed implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(SeatChangeFeed.class.getName());
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(250);
+    public static final int DEFAULT_BACKLOG = 16;
+    private static final int BOOKING_QUEUE_CAPACITY = 1024;
+
+    private final Duration interval;
+    private final int backlog;
+    private final Function<String, List<Booking>> bookingsByConcert;
+    private final Map<String, ConcertChannel> channels = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    /**
+     * @param bookingsByConcert every booking for a concert, for snapshots
+     */
+    public SeatChangeFeed(Function<String, List<Booking>> bookingsByConcert) {
+        this(bookingsByConcert, DEFAULT_INTERVAL, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * @param backlog batches a subscriber may fall behind by before it is sent a snapshot instead; a power
+     *                of two
+     */
+    public SeatChangeFeed(Function<String, List<Booking>> bookingsByConcert, Duration interval, int backlog) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (backlog <= 0 || Integer.bitCount(backlog) != 1) {
+            throw new IllegalArgumentException("Backlog must be a positive power of two");
+        }
+        this.bookingsByConcert = bookingsByConcert;
+        this.interval = interval;
+        this.backlog = backlog;
+    }
+
+    public synchronized SeatFeedSubscription subscribe(Concert concert) {
+        if (closed) {
+            throw new IllegalStateException("Seat change feed is closed");
+        }
+        ConcertChannel channel = channels.computeIfAbsent(concert.getId(), id -> {
+            ConcertChannel created = new ConcertChannel(concert, bookingsByConcert, BOOKING_QUEUE_CAPACITY);
+            concert.getSeatStates().addListener(created);
+            return created;
+        });
+        SeatFeedSubscription subscription = new SeatFeedSubscription(channel, backlog);
+        channel.add(subscription);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(RequestExecutors.daemonThreads("seat-change-feed"));
+            long nanos = interval.toNanos();
+            scheduler.scheduleWithFixedDelay(this::publish, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+        return subscription;
+    }
+
+    /**
+     * Records that a booking was confirmed or cancelled.
+     */
+    public void bookingChanged(Booking booking) {
+        ConcertChannel channel = channels.get(booking.getConcert().getId());
+        if (channel != null) {
+            channel.bookingChanged(booking);
+        }
+    }
+
+    private void publish() {
+        for (ConcertChannel channel : channels.values()) {
+            try {
+                channel.publish();
+            } catch (RuntimeException e) {
+                // One concert's failure must not stop the feed for the others.
+                LOG.log(Level.WARNING, "Seat change feed for concert " + channel.getConcertId() + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Stops sending batches. Subscriptions stay open but receive nothing more.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.concertbooking.feed;
+
+import com.concertbooking.concurrent.MpscRingBuffer;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A subscriber's view of one concert's {@link SeatChangeFeed}. The first batch is always a snapshot.
+ *
+ * <p>Batches wait in a small bounded queue. If the subscriber falls so far behind that the queue is
+ * full, the feed stops queueing deltas for it and queues a fresh snapshot as soon as there is room, so
+ * a slow subscriber costs a fixed amount of memory and catches up in one step. Poll from one thread.
+ */
+public final class SeatFeedSubscription implements AutoCloseable {
+    private final ConcertChannel channel;
+    private final MpscRingBuffer<SeatChangeBatch> outbox;
+    private volatile boolean needsSnapshot = true;
+    private volatile boolean closed;
+    private volatile Thread waiter;
+
+    SeatFeedSubscription(ConcertChannel channel, int backlog) {
+        this.channel = channel;
+        this.outbox = new MpscRingBuffer<>(backlog);
+    }
+
+    public String getConcertId() {
+        return channel.getConcertId();
+    }
+
+    /**
+     * The next batch, or {@code null} if none is waiting.
+     */
+    public SeatChangeBatch poll() {
+        return outbox.poll();
+    }
+
+    /**
+     * The next batch, waiting up to {@code timeout} for one; {@code null} if none came or the subscription
+     * was closed.
+     */
+    public SeatChangeBatch poll(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        SeatChangeBatch batch;
+        while ((batch = outbox.poll()) == null && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            waiter = Thread.currentThread();
+            // Re-check after announcing ourselves, or a batch offered in between would not wake us.
+            if (outbox.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waiter = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return batch;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            channel.remove(this);
+            wake();
+        }
+    }
+
+    boolean needsSnapshot() {
+        return needsSnapshot;
+    }
+
+    void requestSnapshot() {
+        needsSnapshot = true;
+    }
+
+    // Feed thread only.
+    void deliver(SeatChangeBatch batch) {
+        if (batch.isSnapshot()) {
+            if (outbox.offer(batch)) {
+                needsSnapshot = false;
+                wake();
+            }
+        } else if (!needsSnapshot) {
+            if (outbox.offer(batch)) {
+                wake();
+            } else {
+                needsSnapshot = true;
+            }
+        }
+    }
+
+    private void wake() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.concertbooking.id;
+
+import java.util.Arrays;
+
+/**
+ * Text form of 64-bit ids: 13 characters of Crockford base32, most significant first and zero-padded,
+ * so for non-negative ids text order is numeric order. Only that canonical form is accepted: no lower
+ * case and none of Crockford's aliases ({@code I}, {@code L}, {@code O}). Otherwise a legacy text id
+ * such as {@code BOOKING000001} would parse as a number whose text form is a different string, and be
+ * looked up under the wrong key.
+ */
+public final class CompactIds {
+    public static final int LENGTH = 13;
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private CompactIds() {
+    }
+
+    public static String format(long id) {
+        char[] text = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            text[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * True if {@code text} is the text form of an id, so that {@code format(parse(text))} gives it back.
+     * The first character carries only the top four bits, so it is at most {@code F}.
+     */
+    public static boolean isCompact(String text) {
+        if (text == null || text.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (value(text.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return value(text.charAt(0)) < 16;
+    }
+
+    public static long parse(String text) {
+        if (!isCompact(text)) {
+            throw new IllegalArgumentException("Not a compact id: " + text);
+        }
+        long id = 0L;
+        for (int i = 0; i < LENGTH; i++) {
+            id = (id << 5) | value(text.charAt(i));
+        }
+        return id;
+    }
+
+    private static int value(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
+}
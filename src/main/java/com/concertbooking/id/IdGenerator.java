@@ -0,0 +1,9 @@
+package com.concertbooking.id;
+
+/**
+ * Source of unique 64-bit ids. Rendered as text with {@link CompactIds} only where an id leaves the
+ * process.
+ */
+public interface IdGenerator {
+    long nextId();
+}
@@ -0,0 +1,113 @@
+package com.concertbooking.id;
+
+import com.concertbooking.concurrent.RequestExecutors;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style ids: 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a 12-bit sequence,
+ * so ids from one node sort by creation time and ids from different nodes never collide.
+ *
+ * <p>Each platform thread leases a small block of sequence numbers with a single compare-and-set on a
+ * shared counter and then hands them out with no synchronization at all. Virtual threads are many and
+ * short-lived, so a lease each would mostly be thrown away, burning through the millisecond's sequence
+ * numbers, and a thread-local per thread would pile up besides; they take one id at a time with a
+ * compare-and-set on the same counter instead. A lease is dropped once the clock
+ * moves past its millisecond, so an id's timestamp is never earlier than the moment it was issued. The
+ * counter never goes backwards: if the clock does, or more than 4096 ids are needed in one millisecond,
+ * ids carry on from the last one issued and briefly run ahead of the clock.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+    /**
+     * Node id of the {@link #getDefault() default} generator, 0 unless set. Processes that share a booking
+     * store need distinct node ids.
+     */
+    public static final String NODE_ID_PROPERTY = "concertbooking.node.id";
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    static final int SEQUENCE_BITS = 12;
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int LEASE_SIZE = 64;
+
+    private final long nodeBits;
+    // Last (millis << SEQUENCE_BITS | sequence) handed out in any lease.
+    private final AtomicLong issued = new AtomicLong();
+    private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * The generator shared by everything in this process that does not bring its own. Two generators with
+     * the same node id can issue the same id, so share this one rather than creating another.
+     */
+    public static TimeOrderedIdGenerator getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    @Override
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        if (RequestExecutors.isVirtual(Thread.currentThread())) {
+            return toId(claimOne(now));
+        }
+        Lease lease = leases.get();
+        if (lease.next == lease.end || (lease.next >>> SEQUENCE_BITS) < now) {
+            renew(lease, now);
+        }
+        return toId(lease.next++);
+    }
+
+    private long toId(long stamp) {
+        return ((stamp >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (stamp & ((1L << SEQUENCE_BITS) - 1));
+    }
+
+    /**
+     * Milliseconds since the Unix epoch at which an id was issued.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    private long claimOne(long now) {
+        while (true) {
+            long last = issued.get();
+            long stamp = Math.max(last + 1, now << SEQUENCE_BITS);
+            if (issued.compareAndSet(last, stamp)) {
+                return stamp;
+            }
+        }
+    }
+
+    private void renew(Lease lease, long now) {
+        while (true) {
+            long last = issued.get();
+            long start = Math.max(last + 1, now << SEQUENCE_BITS);
+            // Stop at the end of the millisecond so every id in the lease carries the same timestamp.
+            long end = Math.min(start + LEASE_SIZE, ((start >>> SEQUENCE_BITS) + 1) << SEQUENCE_BITS);
+            if (issued.compareAndSet(last, end - 1)) {
+                lease.next = start;
+                lease.end = end;
+                return;
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final TimeOrderedIdGenerator INSTANCE = new TimeOrderedIdGenerator(Integer.getInteger(NODE_ID_PROPERTY, 0));
+    }
+
+    private static final class Lease {
+        private long next;
+        private long end;
+    }
+}
@@ -0,0 +1,150 @@
+package com.concertbooking.journal;
+
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.Seat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoding of booking events as {@link JournalRecord}s, shared by the journaled repository that writes
+ * them and the recovery and snapshot code that reads them back.
+ */
+public final class BookingEvents {
+    public static final byte BOOKED = 1;
+    public static final byte CONFIRMED = 2;
+    public static final byte CANCELLED = 3;
+    public static final byte DELETED = 4;
+
+    private BookingEvents() {
+    }
+
+    public static JournalRecord booked(Booking booking) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + 48 * booking.getSeats().size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(booking.getId());
+            out.writeUTF(booking.getConcert().getId());
+            out.writeUTF(booking.getUser().getId());
+            out.writeUTF(nullToEmpty(booking.getUser().getUserName()));
+            out.writeUTF(nullToEmpty(booking.getUser().getEmail()));
+            out.writeDouble(booking.getTotalPrice());
+            out.writeInt(booking.getSeats().size());
+            for (Seat seat : booking.getSeats()) {
+                out.writeUTF(seat.getId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JournalRecord(BOOKED, bytes.toByteArray());
+    }
+
+    /**
+     * Record of a booking becoming CONFIRM or CANCELLED.
+     */
+    public static JournalRecord statusChanged(String bookingId, BookingStatus status) {
+        if (status == BookingStatus.PENDING) {
+            throw new IllegalArgumentException("A booking never returns to PENDING");
+        }
+        return new JournalRecord(status == BookingStatus.CANCELLED ? CANCELLED : CONFIRMED, encodeId(bookingId));
+    }
+
+    public static JournalRecord deleted(String bookingId) {
+        return new JournalRecord(DELETED, encodeId(bookingId));
+    }
+
+    /**
+     * Id of the booking a record is about.
+     */
+    public static String bookingId(JournalRecord record) {
+        try (DataInputStream in = input(record)) {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw malformed(record, e);
+        }
+    }
+
+    /**
+     * The booking carried by a {@link #BOOKED} record, still PENDING.
+     */
+    public static StoredBooking decodeBooked(JournalRecord record) {
+        if (record.getType() != BOOKED) {
+            throw new IllegalArgumentException("Journal record " + record.getLsn() + " is not a booking");
+        }
+        try (DataInputStream in = input(record)) {
+            String id = in.readUTF();
+            String concertId = in.readUTF();
+            String userId = in.readUTF();
+            String userName = in.readUTF();
+            String email = in.readUTF();
+            double totalPrice = in.readDouble();
+            int seatCount = in.readInt();
+            List<String> seatIds = new ArrayList<>(seatCount);
+            for (int i = 0; i < seatCount; i++) {
+                seatIds.add(in.readUTF());
+            }
+            return new StoredBooking(id, concertId, userId, userName, email, totalPrice, seatIds, BookingStatus.PENDING);
+        } catch (IOException e) {
+            throw malformed(record, e);
+        }
+    }
+
+    /**
+     * Applies one record to a map of stored bookings by id.
+     */
+    public static void apply(Map<String, StoredBooking> bookings, JournalRecord record) {
+        switch (record.getType()) {
+            case BOOKED: {
+                StoredBooking booking = decodeBooked(record);
+                bookings.put(booking.getId(), booking);
+                break;
+            }
+            case CONFIRMED: existing(bookings, record).setStatus(BookingStatus.CONFIRM); break;
+            case CANCELLED: existing(bookings, record).setStatus(BookingStatus.CANCELLED); break;
+            case DELETED: bookings.remove(bookingId(record)); break;
+            default: throw unknownType(record);
+        }
+    }
+
+    static IllegalStateException unknownType(JournalRecord record) {
+        return new IllegalStateException("Unknown journal record type " + record.getType() + " at " + record.getLsn());
+    }
+
+    private static StoredBooking existing(Map<String, StoredBooking> bookings, JournalRecord record) {
+        String bookingId = bookingId(record);
+        StoredBooking booking = bookings.get(bookingId);
+        if (booking == null) {
+            throw new IllegalStateException("Journal record " + record.getLsn() + " refers to unknown booking " + bookingId);
+        }
+        return booking;
+    }
+
+    private static byte[] encodeId(String bookingId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bookingId.length() + 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(bookingId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(JournalRecord record) {
+        return new DataInputStream(new ByteArrayInputStream(record.getPayload()));
+    }
+
+    private static UncheckedIOException malformed(JournalRecord record, IOException e) {
+        return new UncheckedIOException("Journal record " + record.getLsn() + " is malformed", e);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
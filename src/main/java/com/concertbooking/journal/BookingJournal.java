@@ -0,0 +1,376 @@
+package com.concertbooking.journal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented log of booking events in a local directory.
+ *
+ * <p>Each record is framed as {@code [payload length:int][crc32c:int][lsn:long][type:byte][payload]},
+ * the checksum covering everything after itself. Segments are named after the first log sequence number
+ * they hold and roll over once they pass the configured size. On open the tail of the last segment is
+ * checked and anything after the last intact record (a write torn by a crash) is cut off; damage in any
+ * earlier segment fails the open instead.
+ *
+ * <p>In {@link SyncMode#GROUP_COMMIT} mode appenders copy their frames into a shared buffer and then wait
+ * for them to become durable. Whoever finds no fsync in progress becomes the leader, writes the whole
+ * buffer and fsyncs once for every appender that queued behind the previous fsync. Any I/O error fails
+ * the journal for good, since after a failed write it can no longer tell which records reached the disk.
+ */
+public final class BookingJournal implements AutoCloseable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + 1;
+    private static final int MAX_PAYLOAD_BYTES = 16 << 20;
+    private static final String SEGMENT_PREFIX = "bookings-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final SyncMode syncMode;
+    private final long segmentBytes;
+    // Guards pending, pendingFirstLsn and nextLsn.
+    private final Object appendLock = new Object();
+    // Held by whoever is writing and forcing the log; guards everything about the open segment.
+    private final Object flushLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(64 << 10);
+    private ByteBuffer spare = ByteBuffer.allocate(64 << 10);
+    private long pendingFirstLsn;
+    private long nextLsn;
+    private volatile long durableLsn;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private FileChannel segment;
+    private long segmentSize;
+
+    public BookingJournal(Path directory, SyncMode syncMode) {
+        this(directory, syncMode, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public BookingJournal(Path directory, SyncMode syncMode, long segmentBytes) {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size is too small");
+        }
+        this.directory = directory;
+        this.syncMode = syncMode;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            long lastLsn = segments.isEmpty() ? 0L : firstLsn(segments.get(0)) - 1;
+            for (int i = 0; i < segments.size(); i++) {
+                Path path = segments.get(i);
+                ScanResult scan = scan(path, lastLsn + 1, record -> { });
+                long size = Files.size(path);
+                if (scan.validBytes < size) {
+                    if (i < segments.size() - 1) {
+                        throw new IllegalStateException("Journal segment " + path + " is damaged at byte " + scan.validBytes);
+                    }
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.truncate(scan.validBytes);
+                        channel.force(true);
+                    }
+                }
+                lastLsn = scan.lastLsn;
+            }
+            this.nextLsn = lastLsn + 1;
+            this.durableLsn = lastLsn;
+            if (segments.isEmpty()) {
+                openSegment(nextLsn);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                segment = FileChannel.open(last, StandardOpenOption.WRITE);
+                segmentSize = segment.size();
+                segment.position(segmentSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open booking journal in " + directory, e);
+        }
+    }
+
+    public SyncMode getSyncMode() {
+        return syncMode;
+    }
+
+    /**
+     * Sequence number of the last record known to be on disk.
+     */
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    public long append(JournalRecord record) {
+        return append(List.of(record));
+    }
+
+    /**
+     * Appends the records contiguously and returns once they are durable, giving the sequence number of
+     * the last one.
+     */
+    public long append(List<JournalRecord> records) {
+        if (syncMode == SyncMode.PER_OPERATION) {
+            synchronized (flushLock) {
+                long lsn = enqueue(records);
+                flush();
+                return lsn;
+            }
+        }
+        long lsn = enqueue(records);
+        if (durableLsn < lsn) {
+            synchronized (flushLock) {
+                // Usually the previous leader's fsync already covered us while we waited for the lock.
+                if (durableLsn < lsn) {
+                    flush();
+                }
+            }
+        }
+        return lsn;
+    }
+
+    /**
+     * Hands every durable record to {@code handler} in log order.
+     */
+    public void replay(Consumer<JournalRecord> handler) {
+        replay(1L, handler);
+    }
+
+    /**
+     * Hands the records from {@code fromLsn} on to {@code handler} in log order, skipping whole segments
+     * that end before it. Records appended while this runs may or may not be included.
+     */
+    public void replay(long fromLsn, Consumer<JournalRecord> handler) {
+        checkUsable();
+        try {
+            List<Path> segments;
+            synchronized (flushLock) {
+                segments = segments();
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && firstLsn(segments.get(i + 1)) <= fromLsn) {
+                    continue;
+                }
+                Path path = segments.get(i);
+                scan(path, firstLsn(path), record -> {
+                    if (record.getLsn() >= fromLsn) {
+                        handler.accept(record);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay booking journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have sequence numbers up to {@code lsn}, once a snapshot has
+     * made them redundant. The segment being written is always kept. Returns how many were deleted.
+     */
+    public int deleteSegmentsThrough(long lsn) {
+        checkUsable();
+        synchronized (flushLock) {
+            try {
+                List<Path> segments = segments();
+                int deleted = 0;
+                for (int i = 0; i + 1 < segments.size() && firstLsn(segments.get(i + 1)) - 1 <= lsn; i++) {
+                    Files.delete(segments.get(i));
+                    deleted++;
+                }
+                return deleted;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete journal segments in " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            if (failure == null) {
+                flush();
+            }
+            closed = true;
+            try {
+                segment.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private long enqueue(List<JournalRecord> records) {
+        checkUsable();
+        CRC32C crc = new CRC32C();
+        synchronized (appendLock) {
+            if (pending.position() == 0) {
+                pendingFirstLsn = nextLsn;
+            }
+            for (JournalRecord record : records) {
+                byte[] payload = record.getPayload();
+                if (payload.length > MAX_PAYLOAD_BYTES) {
+                    throw new IllegalArgumentException("Journal record of " + payload.length + " bytes is too large");
+                }
+                ensureCapacity(HEADER_BYTES + payload.length);
+                int start = pending.position();
+                pending.putInt(payload.length);
+                pending.putInt(0);
+                pending.putLong(nextLsn++);
+                pending.put(record.getType());
+                pending.put(payload);
+                crc.reset();
+                crc.update(pending.array(), start + 2 * Integer.BYTES, HEADER_BYTES - 2 * Integer.BYTES + payload.length);
+                pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+            }
+            return nextLsn - 1;
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    // Caller holds flushLock.
+    private void flush() {
+        checkUsable();
+        ByteBuffer batch;
+        long firstLsn;
+        long lastLsn;
+        synchronized (appendLock) {
+            batch = pending;
+            firstLsn = pendingFirstLsn;
+            lastLsn = nextLsn - 1;
+            spare.clear();
+            pending = spare;
+        }
+        batch.flip();
+        try {
+            if (batch.hasRemaining()) {
+                if (segmentSize > 0 && segmentSize + batch.remaining() > segmentBytes) {
+                    segment.force(true);
+                    segment.close();
+                    openSegment(firstLsn);
+                }
+                while (batch.hasRemaining()) {
+                    segmentSize += segment.write(batch);
+                }
+                segment.force(false);
+            }
+            durableLsn = lastLsn;
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Booking journal write failed", e);
+        } finally {
+            spare = batch;
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        segment = FileChannel.open(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0L;
+        // Forcing the file does not make its directory entry durable; without this a crash can lose the
+        // whole new segment, records and all.
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Booking journal failed earlier and no longer accepts writes", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Booking journal is closed");
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add);
+            return segments;
+        }
+    }
+
+    /**
+     * Reads records from a segment until its end or the first record that is torn, fails its checksum or
+     * is out of sequence.
+     */
+    private static ScanResult scan(Path path, long expectedLsn, Consumer<JournalRecord> handler) throws IOException {
+        CRC32C crc = new CRC32C();
+        long validBytes = 0L;
+        long lsn = expectedLsn - 1;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            byte[] header = new byte[HEADER_BYTES];
+            while (true) {
+                try {
+                    in.readFully(header);
+                } catch (EOFException e) {
+                    break;
+                }
+                ByteBuffer frame = ByteBuffer.wrap(header);
+                int length = frame.getInt();
+                int checksum = frame.getInt();
+                long recordLsn = frame.getLong();
+                byte type = frame.get();
+                if (length < 0 || length > MAX_PAYLOAD_BYTES || recordLsn != lsn + 1) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(header, 2 * Integer.BYTES, HEADER_BYTES - 2 * Integer.BYTES);
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                handler.accept(new JournalRecord(recordLsn, type, payload));
+                lsn = recordLsn;
+                validBytes += HEADER_BYTES + length;
+            }
+        }
+        return new ScanResult(lsn, validBytes);
+    }
+
+    private static final class ScanResult {
+        private final long lastLsn;
+        private final long validBytes;
+
+        ScanResult(long lastLsn, long validBytes) {
+            this.lastLsn = lastLsn;
+            this.validBytes = validBytes;
+        }
+    }
+}
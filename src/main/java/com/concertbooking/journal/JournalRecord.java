@@ -0,0 +1,33 @@
+package com.concertbooking.journal;
+
+/**
+ * One entry of the {@link BookingJournal}: a caller-defined type byte and an opaque payload. The log
+ * sequence number is assigned by the journal and is -1 until the record has been appended.
+ */
+public final class JournalRecord {
+    private final long lsn;
+    private final byte type;
+    private final byte[] payload;
+
+    public JournalRecord(byte type, byte[] payload) {
+        this(-1L, type, payload);
+    }
+
+    JournalRecord(long lsn, byte type, byte[] payload) {
+        this.lsn = lsn;
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+}
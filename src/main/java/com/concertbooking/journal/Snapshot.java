@@ -0,0 +1,247 @@
+package com.concertbooking.journal;
+
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatType;
+import com.concertbooking.model.VenueLayout;
+
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Contents of one snapshot file: the concert catalogue with the booked seats of each concert, and every
+ * booking, exactly as the journal stood at {@link #getLsn()}.
+ */
+public final class Snapshot {
+    private final long lsn;
+    private final List<ConcertImage> concerts;
+    private final List<StoredBooking> bookings;
+
+    Snapshot(long lsn, List<ConcertImage> concerts, List<StoredBooking> bookings) {
+        this.lsn = lsn;
+        this.concerts = concerts;
+        this.bookings = bookings;
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    public List<ConcertImage> getConcerts() {
+        return concerts;
+    }
+
+    public List<StoredBooking> getBookings() {
+        return bookings;
+    }
+
+    /**
+     * A venue layout as stored once in a snapshot for all of its concerts.
+     */
+    static final class StoredLayout {
+        private final VenueLayout layout;
+        // The registered layout last compared with this one, and whether it was the same.
+        private VenueLayout checked;
+        private boolean same;
+
+        StoredLayout(VenueLayout layout) {
+            this.layout = layout;
+        }
+
+        VenueLayout getLayout() {
+            return layout;
+        }
+
+        /**
+         * Whether {@code other} has the same seats and base prices, so its concerts can share it instead.
+         */
+        boolean sameAs(VenueLayout other) {
+            if (other != checked) {
+                checked = other;
+                same = other != null && compare(other);
+            }
+            return same;
+        }
+
+        private boolean compare(VenueLayout other) {
+            if (!Objects.equals(other.getVenue(), layout.getVenue()) || other.size() != layout.size()) {
+                return false;
+            }
+            for (int slot = 0; slot < layout.size(); slot++) {
+                if (!other.getSeatId(slot).equals(layout.getSeatId(slot))
+                        || !Objects.equals(other.getSeatNumber(slot), layout.getSeatNumber(slot))
+                        || other.getSeatType(slot) != layout.getSeatType(slot)
+                        || Double.compare(other.getBasePrice(slot), layout.getBasePrice(slot)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One concert as stored in a snapshot, with its seats in slot order and a bitmap of the booked ones,
+     * which is read from the snapshot file's mapping. A concert made from a venue layout keeps that layout,
+     * shared with the other concerts stored on it, and its price overrides.
+     */
+    public static final class ConcertImage {
+        private final String id;
+        private final String artistName;
+        private final String venue;
+        private final boolean layoutBacked;
+        private final LocalDateTime dateTime;
+        // Either a stored layout and the overrides on it, or seats of its own. Snapshots from before layouts
+        // were stored once keep seats of their own even for a concert made from a layout.
+        private final StoredLayout layout;
+        private final Map<String, Double> priceOverrides;
+        private final String[] seatIds;
+        private final String[] seatNumbers;
+        private final SeatType[] seatTypes;
+        private final double[] seatPrices;
+        private final LongBuffer booked;
+
+        ConcertImage(String id, String artistName, String venue, boolean layoutBacked, LocalDateTime dateTime, String[] seatIds,
+                     String[] seatNumbers, SeatType[] seatTypes, double[] seatPrices, LongBuffer booked) {
+            this.id = id;
+            this.artistName = artistName;
+            this.venue = venue;
+            this.layoutBacked = layoutBacked;
+            this.dateTime = dateTime;
+            this.layout = null;
+            this.priceOverrides = Map.of();
+            this.seatIds = seatIds;
+            this.seatNumbers = seatNumbers;
+            this.seatTypes = seatTypes;
+            this.seatPrices = seatPrices;
+            this.booked = booked;
+        }
+
+        ConcertImage(String id, String artistName, StoredLayout layout, LocalDateTime dateTime,
+                     Map<String, Double> priceOverrides, LongBuffer booked) {
+            this.id = id;
+            this.artistName = artistName;
+            this.venue = layout.getLayout().getVenue();
+            this.layoutBacked = true;
+            this.dateTime = dateTime;
+            this.layout = layout;
+            this.priceOverrides = priceOverrides;
+            this.seatIds = null;
+            this.seatNumbers = null;
+            this.seatTypes = null;
+            this.seatPrices = null;
+            this.booked = booked;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getVenue() {
+            return venue;
+        }
+
+        /**
+         * Whether the concert was built from its venue's shared {@link VenueLayout}.
+         */
+        public boolean isLayoutBacked() {
+            return layoutBacked;
+        }
+
+        public int getSeatCount() {
+            return layout != null ? layout.getLayout().size() : seatIds.length;
+        }
+
+        String getSeatId(int slot) {
+            return layout != null ? layout.getLayout().getSeatId(slot) : seatIds[slot];
+        }
+
+        public boolean isBooked(int slot) {
+            int word = slot / Long.SIZE;
+            return word < booked.limit() && (booked.get(word) & (1L << slot)) != 0L;
+        }
+
+        public int getAvailableSeatCount() {
+            int bookedSeats = 0;
+            for (int word = 0; word < booked.limit(); word++) {
+                bookedSeats += Long.bitCount(booked.get(word));
+            }
+            return getSeatCount() - bookedSeats;
+        }
+
+        /**
+         * Builds the concert with its seat states already restored.
+         */
+        public Concert toConcert() {
+            return toConcert(null);
+        }
+
+        /**
+         * Like {@link #toConcert()}, but builds a concert that was made from a venue layout on {@code layout}
+         * again, with the seat prices that differ from the layout's as its overrides, so that it shares the
+         * layout instead of holding seats of its own. Falls back to the layout stored in the snapshot, or to
+         * seats of its own, if {@code layout} is {@code null} or does not have the stored seats.
+         */
+        public Concert toConcert(VenueLayout layout) {
+            if (this.layout != null) {
+                VenueLayout shared = this.layout.sameAs(layout) ? layout : this.layout.getLayout();
+                Concert concert = new Concert(id, artistName, shared, dateTime, priceOverrides);
+                concert.getSeatStates().restoreBooked(booked);
+                return concert;
+            }
+            if (layoutBacked && matches(layout)) {
+                Map<String, Double> overrides = new HashMap<>();
+                for (int slot = 0; slot < seatIds.length; slot++) {
+                    if (seatPrices[slot] != layout.getBasePrice(slot)) {
+                        overrides.put(seatIds[slot], seatPrices[slot]);
+                    }
+                }
+                Concert concert = new Concert(id, artistName, layout, dateTime, overrides);
+                concert.getSeatStates().restoreBooked(booked);
+                return concert;
+            }
+            List<Seat> seats = new ArrayList<>(seatIds.length);
+            for (int slot = 0; slot < seatIds.length; slot++) {
+                seats.add(new Seat(seatIds[slot], seatNumbers[slot], seatTypes[slot], seatPrices[slot]));
+            }
+            Concert concert = new Concert(id, artistName, venue, dateTime, seats);
+            concert.getSeatStates().restoreBooked(booked);
+            return concert;
+        }
+
+        private boolean matches(VenueLayout layout) {
+            if (layout == null || !Objects.equals(layout.getVenue(), venue) || layout.size() != seatIds.length) {
+                return false;
+            }
+            for (int slot = 0; slot < seatIds.length; slot++) {
+                if (!layout.getSeatId(slot).equals(seatIds[slot]) || !Objects.equals(layout.getSeatNumber(slot), seatNumbers[slot])
+                        || layout.getSeatType(slot) != seatTypes[slot]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Restores the seat states into a concert that was added again before recovery. The concert must have
+         * the same seats in the same order.
+         */
+        public void restoreInto(Concert concert) {
+            int seatCount = getSeatCount();
+            if (concert.getSeatCount() != seatCount) {
+                throw new IllegalStateException("Concert " + id + " has " + concert.getSeatCount()
+                        + " seats but its snapshot has " + seatCount);
+            }
+            for (int slot = 0; slot < seatCount; slot++) {
+                if (!concert.getSeatAt(slot).getId().equals(getSeatId(slot))) {
+                    throw new IllegalStateException("Concert " + id + " seats do not match its snapshot at slot " + slot);
+                }
+            }
+            concert.getSeatStates().restoreBooked(booked);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.concertbooking.journal;
+
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatType;
+import com.concertbooking.model.VenueLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Directory of snapshot files, written through a buffer a block at a time and read through memory maps of
+ * at most 1 GiB each, so a snapshot may be larger than a single mapping could hold.
+ *
+ * <p>Layout, big-endian: a header ({@code magic, version, lsn}), the venue layouts the concerts were built
+ * from (per seat its id, number, type and base price), the concerts (ids and text, then either the index of
+ * their layout and the slots and prices of their price overrides, or per seat its id, number, type and
+ * price; then a bitmap of booked slots), the bookings (seats as slots of their concert), and a trailing
+ * CRC32C of everything before it. A layout is stored once however many concerts share it. Strings are a
+ * length and UTF-8 bytes. A file is written under a temporary name and renamed into place, so a crash
+ * mid-write never leaves a half snapshot where {@link #readLatest} would find it; the checksum catches
+ * anything else. Snapshots read back keep their booked-seat bitmaps in the mapping instead of copying them
+ * to the heap.
+ */
+public final class SnapshotStore {
+    private static final Logger LOG = Logger.getLogger(SnapshotStore.class.getName());
+    private static final long MAGIC = 0x43425F534E415053L;
+    // Version 2 added the layout flag and version 3 the shared layouts; version 1 and 2 files still read.
+    private static final int VERSION = 3;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int RETAINED = 2;
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given concerts and bookings as of {@code lsn}. The booked-seat bitmaps are
+     * derived from the bookings that are not cancelled.
+     */
+    public Path write(long lsn, Collection<Concert> concerts, Collection<StoredBooking> bookings) {
+        Map<String, Integer> concertIndex = new HashMap<>(concerts.size() * 4 / 3 + 1);
+        List<Concert> ordered = new ArrayList<>(concerts);
+        List<BitSet> booked = new ArrayList<>(ordered.size());
+        Map<VenueLayout, Integer> layoutIndex = new IdentityHashMap<>();
+        List<VenueLayout> layouts = new ArrayList<>();
+        List<Map<Integer, Double>> overrides = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            Concert concert = ordered.get(i);
+            concertIndex.put(concert.getId(), i);
+            booked.add(new BitSet(concert.getSeatCount()));
+            VenueLayout layout = concert.getVenueLayout();
+            if (layout != null && layoutIndex.putIfAbsent(layout, layouts.size()) == null) {
+                layouts.add(layout);
+            }
+            overrides.add(layout == null ? Map.of() : concert.getPriceOverrides());
+        }
+        List<int[]> bookingSlots = new ArrayList<>(bookings.size());
+        for (StoredBooking booking : bookings) {
+            Integer index = concertIndex.get(booking.getConcertId());
+            if (index == null) {
+                throw new IllegalStateException("Booking " + booking.getId() + " is for unknown concert " + booking.getConcertId());
+            }
+            Concert concert = ordered.get(index);
+            int[] slots = new int[booking.getSeatIds().size()];
+            for (int i = 0; i < slots.length; i++) {
+                Seat seat = concert.getSeat(booking.getSeatIds().get(i));
+                if (seat == null) {
+                    throw new IllegalStateException("Booking " + booking.getId() + " has unknown seat " + booking.getSeatIds().get(i));
+                }
+                slots[i] = seat.getSlot();
+                if (booking.getStatus() != BookingStatus.CANCELLED) {
+                    booked.get(index).set(slots[i]);
+                }
+            }
+            bookingSlots.add(slots);
+        }
+
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                Output out = new Output(channel);
+                out.putLong(MAGIC);
+                out.putInt(VERSION);
+                out.putLong(lsn);
+                out.putInt(layouts.size());
+                for (VenueLayout layout : layouts) {
+                    out.putString(layout.getVenue());
+                    out.putInt(layout.size());
+                    for (int slot = 0; slot < layout.size(); slot++) {
+                        out.putSeat(layout.getSeatId(slot), layout.getSeatNumber(slot), layout.getSeatType(slot),
+                                layout.getBasePrice(slot));
+                    }
+                }
+                out.putInt(ordered.size());
+                for (int i = 0; i < ordered.size(); i++) {
+                    Concert concert = ordered.get(i);
+                    out.putString(concert.getId());
+                    out.putString(concert.getArtistName());
+                    out.putString(concert.getVenue());
+                    VenueLayout layout = concert.getVenueLayout();
+                    out.putInt(layout == null ? -1 : layoutIndex.get(layout));
+                    out.putLong(concert.getDateTime().toEpochSecond(ZoneOffset.UTC));
+                    out.putInt(concert.getDateTime().getNano());
+                    if (layout != null) {
+                        out.putInt(overrides.get(i).size());
+                        for (Map.Entry<Integer, Double> override : overrides.get(i).entrySet()) {
+                            out.putInt(override.getKey());
+                            out.putDouble(override.getValue());
+                        }
+                    } else {
+                        out.putInt(concert.getSeatCount());
+                        for (Seat seat : concert.getSeats()) {
+                            out.putSeat(seat.getId(), seat.getSeatNumber(), seat.getSeatType(), seat.getSeatPrice());
+                        }
+                    }
+                    long[] bits = booked.get(i).toLongArray();
+                    out.putInt(bits.length);
+                    for (long word : bits) {
+                        out.putLong(word);
+                    }
+                }
+                out.putInt(bookings.size());
+                int b = 0;
+                for (StoredBooking booking : bookings) {
+                    int[] slots = bookingSlots.get(b++);
+                    out.putString(booking.getId());
+                    out.putInt(concertIndex.get(booking.getConcertId()));
+                    out.putString(booking.getUserId());
+                    out.putString(booking.getUserName());
+                    out.putString(booking.getEmail());
+                    out.putDouble(booking.getTotalPrice());
+                    out.putInt(booking.getStatus().ordinal());
+                    out.putInt(slots.length);
+                    for (int slot : slots) {
+                        out.putInt(slot);
+                    }
+                }
+                out.finish();
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + target, e);
+        }
+        return target;
+    }
+
+    /**
+     * The newest snapshot that reads back intact, if any.
+     */
+    public Optional<Snapshot> readLatest() {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return Optional.of(read(snapshots.get(i)));
+            } catch (IllegalStateException | UncheckedIOException e) {
+                LOG.log(Level.WARNING, "Skipping unreadable snapshot " + snapshots.get(i), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Snapshot read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = channel.size() - Integer.BYTES;
+            if (end < HEADER_BYTES) {
+                throw new IllegalStateException("Snapshot " + path + " is truncated");
+            }
+            CRC32C crc = new CRC32C();
+            for (long position = 0; position < end; position += WINDOW_BYTES) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, end - position)));
+            }
+            if ((int) crc.getValue() != channel.map(FileChannel.MapMode.READ_ONLY, end, Integer.BYTES).getInt()) {
+                throw new IllegalStateException("Snapshot " + path + " fails its checksum");
+            }
+            Input in = new Input(channel, end);
+            int version;
+            if (in.getLong() != MAGIC || (version = in.getInt()) < 1 || version > VERSION) {
+                throw new IllegalStateException(path + " is not a version 1 to " + VERSION + " snapshot");
+            }
+            long lsn = in.getLong();
+            SeatType[] types = SeatType.values();
+            int layoutCount = version >= 3 ? in.getInt() : 0;
+            List<Snapshot.StoredLayout> layouts = new ArrayList<>(layoutCount);
+            for (int i = 0; i < layoutCount; i++) {
+                String venue = in.getString();
+                int seatCount = in.getInt();
+                List<Seat> seats = new ArrayList<>(seatCount);
+                for (int slot = 0; slot < seatCount; slot++) {
+                    String seatId = in.getString();
+                    String seatNumber = in.getString();
+                    int type = in.getInt();
+                    seats.add(new Seat(seatId, seatNumber, type < 0 ? null : types[type], in.getDouble()));
+                }
+                layouts.add(new Snapshot.StoredLayout(new VenueLayout(venue, seats)));
+            }
+            int concertCount = in.getInt();
+            List<Snapshot.ConcertImage> concerts = new ArrayList<>(concertCount);
+            for (int i = 0; i < concertCount; i++) {
+                String id = in.getString();
+                String artistName = in.getString();
+                String venue = in.getString();
+                int layoutRef = version >= 3 ? in.getInt() : -1;
+                boolean layoutBacked = version == 2 && in.getByte() != 0;
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+                Snapshot.StoredLayout layout = null;
+                Map<String, Double> priceOverrides = null;
+                String[] seatIds = null;
+                String[] seatNumbers = null;
+                SeatType[] seatTypes = null;
+                double[] seatPrices = null;
+                if (layoutRef >= 0) {
+                    layout = layouts.get(layoutRef);
+                    int overrideCount = in.getInt();
+                    priceOverrides = new HashMap<>(overrideCount * 4 / 3 + 1);
+                    for (int o = 0; o < overrideCount; o++) {
+                        priceOverrides.put(layout.getLayout().getSeatId(in.getInt()), in.getDouble());
+                    }
+                } else {
+                    int seatCount = in.getInt();
+                    seatIds = new String[seatCount];
+                    seatNumbers = new String[seatCount];
+                    seatTypes = new SeatType[seatCount];
+                    seatPrices = new double[seatCount];
+                    for (int slot = 0; slot < seatCount; slot++) {
+                        seatIds[slot] = in.getString();
+                        seatNumbers[slot] = in.getString();
+                        int type = in.getInt();
+                        seatTypes[slot] = type < 0 ? null : types[type];
+                        seatPrices[slot] = in.getDouble();
+                    }
+                }
+                LongBuffer booked = in.getLongs(in.getInt());
+                concerts.add(layout != null
+                        ? new Snapshot.ConcertImage(id, artistName, layout, dateTime, priceOverrides, booked)
+                        : new Snapshot.ConcertImage(id, artistName, venue, layoutBacked, dateTime, seatIds, seatNumbers,
+                                seatTypes, seatPrices, booked));
+            }
+            int bookingCount = in.getInt();
+            List<StoredBooking> bookings = new ArrayList<>(bookingCount);
+            BookingStatus[] statuses = BookingStatus.values();
+            for (int i = 0; i < bookingCount; i++) {
+                String id = in.getString();
+                Snapshot.ConcertImage concert = concerts.get(in.getInt());
+                String userId = in.getString();
+                String userName = in.getString();
+                String email = in.getString();
+                double totalPrice = in.getDouble();
+                BookingStatus status = statuses[in.getInt()];
+                int seatCount = in.getInt();
+                List<String> seatIds = new ArrayList<>(seatCount);
+                for (int s = 0; s < seatCount; s++) {
+                    seatIds.add(concert.getSeatId(in.getInt()));
+                }
+                bookings.add(new StoredBooking(id, concert.getId(), userId, userName, email, totalPrice, seatIds, status));
+            }
+            return new Snapshot(lsn, concerts, bookings);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Snapshot " + path + " is malformed", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Deletes all but the newest few snapshots and returns the sequence number of the oldest one kept, or
+     * -1 if there is none. Journal records up to that number are no longer needed for recovery.
+     */
+    public long prune() {
+        List<Path> snapshots = snapshots();
+        try {
+            for (int i = 0; i < snapshots.size() - RETAINED; i++) {
+                Files.delete(snapshots.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prune snapshots in " + directory, e);
+        }
+        return snapshots.isEmpty() ? -1L : lsnOf(snapshots.get(Math.max(0, snapshots.size() - RETAINED)));
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>();
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(snapshots::add);
+            return snapshots;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list snapshots in " + directory, e);
+        }
+    }
+
+    private static long lsnOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Buffers the encoded snapshot and writes it out a block at a time, so its size is not bound by what
+    // one mapping or buffer can hold. The checksum covers every byte written before finish().
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            room(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            room(Long.BYTES).putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            room(Double.BYTES).putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                int length = Math.min(bytes.length - offset, room(1).remaining());
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putSeat(String id, String seatNumber, SeatType type, double price) throws IOException {
+            putString(id);
+            putString(seatNumber);
+            putInt(type == null ? -1 : type.ordinal());
+            putDouble(price);
+        }
+
+        // Appends the checksum of everything so far and writes out what is still buffered.
+        void finish() throws IOException {
+            flush();
+            room(Integer.BYTES).putInt((int) crc.getValue());
+            flush();
+        }
+
+        private ByteBuffer room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Reads a snapshot through mappings of at most WINDOW_BYTES, moving on to the next one when a value does
+    // not fit in what is left of the current one, so offsets past 2 GiB read like any other.
+    private static final class Input {
+        private final FileChannel channel;
+        private final long end;
+        private long base;
+        private MappedByteBuffer window;
+
+        Input(FileChannel channel, long end) throws IOException {
+            this.channel = channel;
+            this.end = end;
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_BYTES, end));
+        }
+
+        byte getByte() throws IOException {
+            return window(1).get();
+        }
+
+        int getInt() throws IOException {
+            return window(Integer.BYTES).getInt();
+        }
+
+        long getLong() throws IOException {
+            return window(Long.BYTES).getLong();
+        }
+
+        double getDouble() throws IOException {
+            return window(Double.BYTES).getDouble();
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            window(length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // The words are left in the mapping, which outlives the channel, rather than copied out.
+        LongBuffer getLongs(int words) throws IOException {
+            if (words < 0 || words > Integer.MAX_VALUE / Long.BYTES) {
+                throw new BufferUnderflowException();
+            }
+            int bytes = words * Long.BYTES;
+            MappedByteBuffer in = window(bytes);
+            LongBuffer longs = in.slice().limit(bytes).asLongBuffer();
+            in.position(in.position() + bytes);
+            return longs;
+        }
+
+        private MappedByteBuffer window(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = base + window.position();
+                if (end - position < bytes) {
+                    throw new BufferUnderflowException();
+                }
+                base = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(bytes, Math.min(WINDOW_BYTES, end - position)));
+            }
+            return window;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.concertbooking.journal;
+
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.repository.ConcertRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Takes snapshots in the background without pausing bookings.
+ *
+ * <p>Rather than copying the live seat states, which would need every writer to stop at the same
+ * instant, the snapshotter keeps its own copy of the bookings and rolls it forward by folding journal
+ * records up to the durable sequence number. Each snapshot is therefore exact as of that sequence
+ * number, and bookings carry on while it is written. Cancelled bookings are left out. Once a snapshot is on disk the journal segments
+ * older than every retained snapshot are deleted.
+ */
+public final class Snapshotter implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(Snapshotter.class.getName());
+
+    private final BookingJournal journal;
+    private final SnapshotStore store;
+    private final ConcertRepository concertRepository;
+    private final Map<String, StoredBooking> bookings = new LinkedHashMap<>();
+    private long lsn = -1L;
+    private ScheduledExecutorService scheduler;
+
+    public Snapshotter(BookingJournal journal, SnapshotStore store, ConcertRepository concertRepository) {
+        this.journal = journal;
+        this.store = store;
+        this.concertRepository = concertRepository;
+    }
+
+    /**
+     * Writes a snapshot as of the journal's durable sequence number and returns that number.
+     */
+    public synchronized long takeSnapshot() {
+        if (lsn < 0) {
+            lsn = 0L;
+            store.readLatest().ifPresent(snapshot -> {
+                for (StoredBooking booking : snapshot.getBookings()) {
+                    if (booking.getStatus() != BookingStatus.CANCELLED) {
+                        bookings.put(booking.getId(), booking);
+                    }
+                }
+                lsn = snapshot.getLsn();
+            });
+        }
+        long target = journal.getDurableLsn();
+        if (target == lsn) {
+            return lsn;
+        }
+        journal.replay(lsn + 1, record -> {
+            if (record.getLsn() > target) {
+                return;
+            }
+            // A cancelled booking holds no seats and is never changed again, so the fold and the
+            // snapshots built from it drop it rather than carry it forever.
+            if (record.getType() == BookingEvents.CANCELLED) {
+                bookings.remove(BookingEvents.bookingId(record));
+            } else {
+                BookingEvents.apply(bookings, record);
+            }
+        });
+        // Concerts are added before anything is booked for them, so the catalogue covers every booking up to target.
+        store.write(target, concertRepository.findAll(), bookings.values());
+        lsn = target;
+        long oldestRetained = store.prune();
+        if (oldestRetained > 0) {
+            journal.deleteSegmentsThrough(oldestRetained);
+        }
+        return lsn;
+    }
+
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshotter is already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(RequestExecutors.daemonThreads("snapshotter"));
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (RuntimeException e) {
+                // The journal still holds everything, so a failed snapshot only delays truncation.
+                LOG.log(Level.WARNING, "Snapshot failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
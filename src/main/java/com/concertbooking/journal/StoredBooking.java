@@ -0,0 +1,67 @@
+package com.concertbooking.journal;
+
+import com.concertbooking.model.BookingStatus;
+
+import java.util.List;
+
+/**
+ * A booking as the journal and snapshots persist it: plain ids instead of live concert and seat objects.
+ */
+public final class StoredBooking {
+    private final String id;
+    private final String concertId;
+    private final String userId;
+    private final String userName;
+    private final String email;
+    private final double totalPrice;
+    private final List<String> seatIds;
+    private BookingStatus status;
+
+    public StoredBooking(String id, String concertId, String userId, String userName, String email,
+                         double totalPrice, List<String> seatIds, BookingStatus status) {
+        this.id = id;
+        this.concertId = concertId;
+        this.userId = userId;
+        this.userName = userName;
+        this.email = email;
+        this.totalPrice = totalPrice;
+        this.seatIds = List.copyOf(seatIds);
+        this.status = status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getConcertId() {
+        return concertId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public List<String> getSeatIds() {
+        return seatIds;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    void setStatus(BookingStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,11 @@
+package com.concertbooking.journal;
+
+/**
+ * When an append to the {@link BookingJournal} is forced to disk.
+ */
+public enum SyncMode {
+    /** Every append writes and fsyncs on its own before returning. */
+    PER_OPERATION,
+    /** Appends that arrive while an fsync is running are written and fsynced together by the next one. */
+    GROUP_COMMIT
+}
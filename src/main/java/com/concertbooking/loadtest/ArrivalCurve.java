@@ -0,0 +1,35 @@
+package com.concertbooking.loadtest;
+
+/**
+ * How simulated users arrive over the test window. Each curve maps the i-th of n users to the fraction
+ * of the window at which it starts, i.e. the inverse of the cumulative arrival distribution.
+ */
+public enum ArrivalCurve {
+    /** Same arrival rate for the whole window. */
+    CONSTANT {
+        @Override
+        double startFraction(long user, long users) {
+            return (double) user / users;
+        }
+    },
+    /** Arrival rate grows linearly from zero, so the last users arrive fastest. */
+    RAMP {
+        @Override
+        double startFraction(long user, long users) {
+            return Math.sqrt((double) user / users);
+        }
+    },
+    /** An on-sale: 80% of users arrive in the first 10% of the window, the rest trickle in after. */
+    SPIKE {
+        @Override
+        double startFraction(long user, long users) {
+            double position = (double) user / users;
+            if (position < 0.8) {
+                return position / 0.8 * 0.1;
+            }
+            return 0.1 + (position - 0.8) / 0.2 * 0.9;
+        }
+    };
+
+    abstract double startFraction(long user, long users);
+}
@@ -0,0 +1,272 @@
+package com.concertbooking.loadtest;
+
+import com.concertbooking.admission.WaitingRoom;
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.metrics.LatencyHistogram;
+import com.concertbooking.model.*;
+import com.concertbooking.system.ConcertTicketBookingSystem;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless on-sale rehearsal against {@link ConcertTicketBookingSystem}.
+ *
+ * <p>Creates one concert, releases simulated users on the chosen arrival curve (one task per user,
+ * on virtual threads where the runtime has them), and reports latency percentiles, throughput per
+ * second and an oversell check. Every run's bookings are cancelled and deleted afterwards, so
+ * {@code --runs=N} repeats the on-sale against the same venue and an equally empty repository.
+ *
+ * <pre>
+ * java -cp target/classes com.concertbooking.loadtest.FlashSaleLoadGenerator --users=1000000 --seats=60000 --curve=spike
+ * </pre>
+ *
+ * <p>{@code --admission-rate=N} puts the concert behind a {@link WaitingRoom} that starts admitting N
+ * buyers a second and tunes itself towards {@code --admission-target-ms}.
+ *
+ * <p>Response time is measured from each user's scheduled arrival, not from when a thread got round to
+ * it, so a backed-up system shows up in the percentiles instead of hiding behind the queue.
+ */
+public class FlashSaleLoadGenerator {
+    private static final long[] PERCENTILES_X100 = {5000, 9000, 9900, 9990, 9999};
+
+    private final LoadTestConfig config;
+    private final ConcertTicketBookingSystem system;
+    private final Concert concert;
+    private final SeatDistribution.Chooser seatChooser;
+
+    FlashSaleLoadGenerator(LoadTestConfig config, ConcertTicketBookingSystem system) {
+        this.config = config;
+        this.system = system;
+        this.concert = createConcert(config);
+        this.seatChooser = config.seatDistribution.chooser(config.seats, config.groupSize);
+        system.addConcert(concert);
+        if (config.admissionRate > 0) {
+            system.openWaitingRoom(concert.getId(), new WaitingRoom(config.admissionRate, Math.max(1, config.admissionRate / 10.0),
+                    config.admissionRate * 10.0, Math.max(1, config.admissionRate / 20), Duration.ofMillis(config.admissionTargetMillis)));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        FlashSaleLoadGenerator generator = new FlashSaleLoadGenerator(config, ConcertTicketBookingSystem.getInstance());
+        System.out.println("Flash sale: " + config);
+        System.out.println("Booking engine: " + System.getProperty(ConcertTicketBookingSystem.ENGINE_PROPERTY, "cas"));
+        System.out.println("Virtual threads: " + (RequestExecutors.virtualThreadsAvailable()
+                ? "yes" : "no, using " + config.fallbackThreads + " platform threads"));
+        for (int run = 1; run <= config.runs; run++) {
+            RunResult result = generator.run();
+            System.out.println();
+            System.out.println("--- Run " + run + " ---");
+            result.print();
+            generator.reset(result);
+        }
+    }
+
+    private static Concert createConcert(LoadTestConfig config) {
+        String concertId = "flash-sale-" + UUID.randomUUID();
+        List<Seat> seats = new ArrayList<>(config.seats);
+        for (int i = 0; i < config.seats; i++) {
+            int row = i / config.rowLength;
+            SeatType type = i < config.seats / 20 ? SeatType.VIP : i < config.seats / 4 ? SeatType.PREMIUM : SeatType.REGULAR;
+            double price = type == SeatType.VIP ? 150.0 : type == SeatType.PREMIUM ? 90.0 : 50.0;
+            seats.add(new Seat(seatId(concertId, i), rowLabel(row) + (i % config.rowLength + 1), type, price));
+        }
+        return new Concert(concertId, "Load Test", "Load Test Arena", LocalDateTime.now().plusDays(30), seats);
+    }
+
+    private static String seatId(String concertId, int index) {
+        return concertId + "-" + index;
+    }
+
+    // A, B, ..., Z, AA, AB, ... like venue row letters.
+    static String rowLabel(int row) {
+        StringBuilder label = new StringBuilder();
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            label.append((char) ('A' + (n - 1) % 26));
+        }
+        return label.reverse().toString();
+    }
+
+    RunResult run() throws InterruptedException {
+        RunResult result = new RunResult(config.durationSeconds);
+        ExecutorService executor = RequestExecutors.newPerRequestExecutor("flash-sale-user", config.fallbackThreads);
+        long windowNanos = TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        result.startNanos = start;
+        try {
+            for (int user = 0; user < config.users; user++) {
+                long due = start + (long) (config.arrivalCurve.startFraction(user, config.users) * windowNanos);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int userIndex = user;
+                executor.execute(() -> simulateUser(userIndex, due, result));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Simulated users did not finish within 10 minutes");
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        result.verify(concert);
+        return result;
+    }
+
+    private void simulateUser(int userIndex, long dueNanos, RunResult result) {
+        SplittableRandom random = new SplittableRandom(config.seed ^ (userIndex * 0x9E3779B97F4A7C15L));
+        User user = new User("load-user-" + userIndex, "Load User " + userIndex, "user" + userIndex + "@load.test");
+        for (int attempt = 0; attempt <= config.retries; attempt++) {
+            if (attempt > 0 && concert.getAvailableSeatCount() < config.groupSize) {
+                break;
+            }
+            int first = seatChooser.pickStart(random);
+            List<String> seatIds = new ArrayList<>(config.groupSize);
+            for (int i = 0; i < config.groupSize; i++) {
+                seatIds.add(seatId(concert.getId(), first + i));
+            }
+            long begin = System.nanoTime();
+            try {
+                Booking booking = system.bookTickets(user.getId(), concert.getId(), seatIds, user);
+                long end = System.nanoTime();
+                result.serviceTime.record(end - begin);
+                result.responseTime.record(end - dueNanos);
+                result.bookings.add(booking);
+                result.recordSuccess(end);
+                return;
+            } catch (SeatNotAvailableException e) {
+                result.serviceTime.record(System.nanoTime() - begin);
+                result.rejectedAttempts.incrementAndGet();
+            } catch (RuntimeException e) {
+                result.errors.incrementAndGet();
+                break;
+            }
+        }
+        result.responseTime.record(System.nanoTime() - dueNanos);
+        result.usersWithoutTickets.incrementAndGet();
+    }
+
+    void reset(RunResult result) {
+        // Deleted too, so every run starts with the same repository and indexes as the first.
+        for (Booking booking : result.bookings) {
+            system.cancelBooking(booking.getId());
+            system.deleteBooking(booking.getId());
+        }
+        int available = concert.getAvailableSeatCount();
+        if (available != config.seats) {
+            throw new IllegalStateException("Reset left " + (config.seats - available) + " seats unavailable");
+        }
+    }
+
+    static final class RunResult {
+        final LatencyHistogram responseTime = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final Queue<Booking> bookings = new ConcurrentLinkedQueue<>();
+        final AtomicLong rejectedAttempts = new AtomicLong();
+        final AtomicLong usersWithoutTickets = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLongArray successesPerSecond;
+        long startNanos;
+        long elapsedNanos;
+        int seatsSold;
+        int bookedSeats;
+        int oversoldSeats;
+        int orphanedSeats;
+        int availableSeats;
+        int seatCount;
+
+        RunResult(int durationSeconds) {
+            // Bookings can finish after the arrival window closes; keep generous room for the tail.
+            this.successesPerSecond = new AtomicLongArray(durationSeconds * 4 + 60);
+        }
+
+        void recordSuccess(long nowNanos) {
+            int second = (int) Math.min(successesPerSecond.length() - 1, Math.max(0, (nowNanos - startNanos) / 1_000_000_000L));
+            successesPerSecond.incrementAndGet(second);
+        }
+
+        void verify(Concert concert) {
+            seatCount = concert.getSeatCount();
+            int[] owners = new int[seatCount];
+            for (Booking booking : bookings) {
+                for (Seat seat : booking.getSeats()) {
+                    owners[seat.getSlot()]++;
+                    if (seat.getStatus() != SeatStatus.BOOKED) {
+                        oversoldSeats++;
+                    }
+                }
+            }
+            for (int slot = 0; slot < seatCount; slot++) {
+                if (owners[slot] > 0) {
+                    seatsSold++;
+                }
+                if (owners[slot] > 1) {
+                    oversoldSeats += owners[slot] - 1;
+                }
+                SeatStatus status = concert.getSeatAt(slot).getStatus();
+                if (status == SeatStatus.BOOKED) {
+                    bookedSeats++;
+                } else if (status == SeatStatus.AVAILABLE) {
+                    availableSeats++;
+                }
+                if (status != SeatStatus.AVAILABLE && owners[slot] == 0) {
+                    orphanedSeats++;
+                }
+            }
+        }
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("Bookings: %d in %.2fs (%.0f/s), rejected attempts: %d, users without tickets: %d, errors: %d%n",
+                    bookings.size(), seconds, bookings.size() / seconds, rejectedAttempts.get(),
+                    usersWithoutTickets.get(), errors.get());
+            printPercentiles("Response time (from scheduled arrival)", responseTime);
+            printPercentiles("Service time (per booking attempt)", serviceTime);
+
+            StringBuilder perSecond = new StringBuilder("Bookings per second:");
+            int last = successesPerSecond.length() - 1;
+            while (last > 0 && successesPerSecond.get(last) == 0) {
+                last--;
+            }
+            for (int second = 0; second <= last; second++) {
+                perSecond.append(' ').append(successesPerSecond.get(second));
+            }
+            System.out.println(perSecond);
+
+            System.out.printf("Seats: %d sold of %d, %d BOOKED in the venue%n", seatsSold, seatCount, bookedSeats);
+            System.out.printf("Oversell: %d seats sold twice or not BOOKED -> %s%n", oversoldSeats,
+                    oversoldSeats == 0 && seatsSold == bookedSeats ? "OK" : "FAILED");
+            System.out.printf("Undersell: %d seats taken without a booking -> %s; %d seats unsold, %d users without tickets%n",
+                    orphanedSeats, orphanedSeats == 0 ? "OK" : "FAILED", availableSeats, usersWithoutTickets.get());
+        }
+
+        private static void printPercentiles(String label, LatencyHistogram histogram) {
+            StringBuilder line = new StringBuilder(label).append(" (us):");
+            for (long percentile : PERCENTILES_X100) {
+                line.append(String.format(" p%s=%.1f", formatPercentile(percentile),
+                        histogram.getValueAtPercentile(percentile / 100.0) / 1e3));
+            }
+            line.append(String.format(" max=%.1f", histogram.getMax() / 1e3));
+            System.out.println(line);
+        }
+
+        private static String formatPercentile(long percentileX100) {
+            return percentileX100 % 100 == 0 ? Long.toString(percentileX100 / 100)
+                    : Double.toString(percentileX100 / 100.0);
+        }
+    }
+}
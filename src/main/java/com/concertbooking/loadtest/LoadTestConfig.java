@@ -0,0 +1,70 @@
+package com.concertbooking.loadtest;
+
+/**
+ * Settings for one load-generator invocation, parsed from {@code --name=value} arguments.
+ */
+public final class LoadTestConfig {
+    int users = 100_000;
+    int seats = 20_000;
+    int rowLength = 50;
+    int groupSize = 2;
+    int retries = 2;
+    int durationSeconds = 10;
+    int runs = 1;
+    int fallbackThreads = 200;
+    long seed = 42L;
+    int admissionRate = 0;
+    int admissionTargetMillis = 5;
+    ArrivalCurve arrivalCurve = ArrivalCurve.SPIKE;
+    SeatDistribution seatDistribution = SeatDistribution.HOT_SPOT;
+
+    static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "users": config.users = positive(name, value); break;
+                case "seats": config.seats = positive(name, value); break;
+                case "row-length": config.rowLength = positive(name, value); break;
+                case "group": config.groupSize = positive(name, value); break;
+                case "retries": config.retries = Integer.parseInt(value); break;
+                case "duration": config.durationSeconds = positive(name, value); break;
+                case "runs": config.runs = positive(name, value); break;
+                case "threads": config.fallbackThreads = positive(name, value); break;
+                case "seed": config.seed = Long.parseLong(value); break;
+                case "admission-rate": config.admissionRate = Integer.parseInt(value); break;
+                case "admission-target-ms": config.admissionTargetMillis = positive(name, value); break;
+                case "curve": config.arrivalCurve = ArrivalCurve.valueOf(value.toUpperCase()); break;
+                case "seat-choice": config.seatDistribution = SeatDistribution.valueOf(value.toUpperCase()); break;
+                default: throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (config.users > 1_000_000) {
+            throw new IllegalArgumentException("At most 1,000,000 simulated users are supported");
+        }
+        if (config.groupSize > config.seats) {
+            throw new IllegalArgumentException("Group size is larger than the venue");
+        }
+        return config;
+    }
+
+    private static int positive(String name, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("--" + name + " must be positive");
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return users + " users, " + seats + " seats, group of " + groupSize + ", " + retries + " retries, "
+                + arrivalCurve + " arrivals over " + durationSeconds + "s, " + seatDistribution + " seat choice"
+                + (admissionRate > 0 ? ", waiting room from " + admissionRate + "/s targeting " + admissionTargetMillis + "ms" : "");
+    }
+}
@@ -0,0 +1,58 @@
+package com.concertbooking.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Which seats simulated users ask for. Seat indexes run from the best seat (0) to the worst.
+ */
+public enum SeatDistribution {
+    /** Any seat is equally likely. */
+    UNIFORM,
+    /** 80% of users want the best 10% of the venue. */
+    HOT_SPOT,
+    /** Seat popularity falls off with rank following Zipf's law (exponent 1). */
+    ZIPF;
+
+    Chooser chooser(int seatCount, int groupSize) {
+        return new Chooser(this, seatCount, groupSize);
+    }
+
+    static final class Chooser {
+        private final SeatDistribution distribution;
+        private final int starts;
+        private final double[] zipfCumulative;
+
+        private Chooser(SeatDistribution distribution, int seatCount, int groupSize) {
+            this.distribution = distribution;
+            this.starts = Math.max(1, seatCount - groupSize + 1);
+            this.zipfCumulative = distribution == ZIPF ? zipfCumulative(starts) : null;
+        }
+
+        int pickStart(SplittableRandom random) {
+            switch (distribution) {
+                case HOT_SPOT:
+                    int hot = Math.max(1, starts / 10);
+                    return random.nextDouble() < 0.8 ? random.nextInt(hot) : random.nextInt(starts);
+                case ZIPF:
+                    int index = Arrays.binarySearch(zipfCumulative, random.nextDouble());
+                    return Math.min(starts - 1, index >= 0 ? index : -index - 1);
+                default:
+                    return random.nextInt(starts);
+            }
+        }
+
+        private static double[] zipfCumulative(int n) {
+            double[] cumulative = new double[n];
+            double sum = 0.0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1.0 / rank;
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+            return cumulative;
+        }
+    }
+}
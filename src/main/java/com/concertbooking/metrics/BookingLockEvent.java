@@ -0,0 +1,24 @@
+package com.concertbooking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.concertbooking.BookingLock")
+@Label("Booking Lock")
+@Category("Concert Booking")
+@Description("One acquisition of a booking lock stripe")
+final class BookingLockEvent extends jdk.jfr.Event {
+    @Label("Concert Id")
+    String concertId;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+
+    @Label("Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long holdTime;
+}
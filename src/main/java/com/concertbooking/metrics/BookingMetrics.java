@@ -0,0 +1,163 @@
+package com.concertbooking.metrics;
+
+import com.concertbooking.model.SeatClaimObserver;
+import com.concertbooking.model.SeatStateStore;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide instrumentation of the booking engines: latency histograms and outcome counts for
+ * bookings and cancellations, retries per seat claim, and wait and hold times of the booking locks.
+ *
+ * <p>Off by default; turn it on with {@code -Dconcertbooking.metrics=true} or {@link #setEnabled}. While
+ * it is off every hook is one volatile read and returns, with no clock reads and no allocation. While it
+ * is on each hook also commits a Flight Recorder event ({@code com.concertbooking.*}) if a recording has
+ * that event enabled. Read everything at once with {@link #snapshot}.
+ */
+public final class BookingMetrics {
+    public static final String ENABLED_PROPERTY = "concertbooking.metrics";
+
+    public enum Operation {
+        BOOK, CANCEL
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        CONCERT_NOT_FOUND,
+        UNKNOWN_SEAT,
+        SEAT_UNAVAILABLE,
+        BOOKING_NOT_FOUND,
+        ALREADY_CANCELLED,
+        ERROR
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private static final LongAdder[][] outcomes = new LongAdder[OPERATIONS.length][OUTCOMES.length];
+    private static final LatencyHistogram lockWait = new LatencyHistogram();
+    private static final LatencyHistogram lockHold = new LatencyHistogram();
+    private static final LatencyHistogram claimRetries = new LatencyHistogram();
+    private static final LongAdder failedClaims = new LongAdder();
+    private static final SeatClaimObserver CLAIM_RECORDER = BookingMetrics::recordClaim;
+    private static volatile boolean enabled;
+
+    static {
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            latencies[op] = new LatencyHistogram();
+            for (int outcome = 0; outcome < OUTCOMES.length; outcome++) {
+                outcomes[op][outcome] = new LongAdder();
+            }
+        }
+        setEnabled(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    private BookingMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(boolean on) {
+        enabled = on;
+        SeatStateStore.setClaimObserver(on ? CLAIM_RECORDER : null);
+    }
+
+    /**
+     * Start time to hand to {@link #record} or {@link #lockAcquired}, or 0 while disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void record(Operation operation, String engine, String concertId, int seats, Outcome outcome, long start) {
+        if (start == 0L) {
+            return;
+        }
+        long latency = System.nanoTime() - start;
+        latencies[operation.ordinal()].record(latency);
+        outcomes[operation.ordinal()][outcome.ordinal()].increment();
+        BookingOperationEvent event = new BookingOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.engine = engine;
+            event.concertId = concertId;
+            event.seats = seats;
+            event.outcome = outcome.name();
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records how long a booking lock took to acquire and returns the acquisition time for
+     * {@link #lockReleased}, or 0 while disabled.
+     */
+    public static long lockAcquired(long waitStart) {
+        if (waitStart == 0L) {
+            return 0L;
+        }
+        long acquired = System.nanoTime();
+        lockWait.record(acquired - waitStart);
+        return acquired;
+    }
+
+    public static void lockReleased(String concertId, long waitStart, long acquired) {
+        if (acquired == 0L) {
+            return;
+        }
+        long holdTime = System.nanoTime() - acquired;
+        lockHold.record(holdTime);
+        BookingLockEvent event = new BookingLockEvent();
+        if (event.isEnabled()) {
+            event.concertId = concertId;
+            event.waitTime = acquired - waitStart;
+            event.holdTime = holdTime;
+            event.commit();
+        }
+    }
+
+    private static void recordClaim(int seats, int retries, boolean claimed) {
+        claimRetries.record(retries);
+        if (!claimed) {
+            failedClaims.increment();
+        }
+        SeatClaimEvent event = new SeatClaimEvent();
+        if (event.isEnabled()) {
+            event.seats = seats;
+            event.retries = retries;
+            event.claimed = claimed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Copies out every metric. Each value is read atomically but not all at the same instant.
+     */
+    public static MetricsSnapshot snapshot() {
+        MetricsSnapshot.Latency[] operationLatencies = new MetricsSnapshot.Latency[OPERATIONS.length];
+        long[][] outcomeCounts = new long[OPERATIONS.length][OUTCOMES.length];
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            operationLatencies[op] = new MetricsSnapshot.Latency(latencies[op]);
+            for (int outcome = 0; outcome < OUTCOMES.length; outcome++) {
+                outcomeCounts[op][outcome] = outcomes[op][outcome].sum();
+            }
+        }
+        return new MetricsSnapshot(operationLatencies, outcomeCounts, new MetricsSnapshot.Latency(lockWait),
+                new MetricsSnapshot.Latency(lockHold), new MetricsSnapshot.Latency(claimRetries), failedClaims.sum());
+    }
+
+    public static synchronized void reset() {
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            latencies[op].reset();
+            for (LongAdder count : outcomes[op]) {
+                count.reset();
+            }
+        }
+        lockWait.reset();
+        lockHold.reset();
+        claimRetries.reset();
+        failedClaims.reset();
+    }
+}
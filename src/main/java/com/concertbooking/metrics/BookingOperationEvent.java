@@ -0,0 +1,32 @@
+package com.concertbooking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.concertbooking.BookingOperation")
+@Label("Booking Operation")
+@Category("Concert Booking")
+@Description("A booking or cancellation handled by a booking engine")
+final class BookingOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Concert Id")
+    String concertId;
+
+    @Label("Seats")
+    int seats;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
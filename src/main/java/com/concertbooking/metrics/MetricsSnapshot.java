@@ -0,0 +1,127 @@
+package com.concertbooking.metrics;
+
+/**
+ * Point-in-time copy of {@link BookingMetrics}. Latencies are in nanoseconds.
+ */
+public final class MetricsSnapshot {
+    private final Latency[] latencies;
+    private final long[][] outcomes;
+    private final Latency lockWait;
+    private final Latency lockHold;
+    private final Latency claimRetries;
+    private final long failedClaims;
+
+    MetricsSnapshot(Latency[] latencies, long[][] outcomes, Latency lockWait, Latency lockHold,
+                    Latency claimRetries, long failedClaims) {
+        this.latencies = latencies;
+        this.outcomes = outcomes;
+        this.lockWait = lockWait;
+        this.lockHold = lockHold;
+        this.claimRetries = claimRetries;
+        this.failedClaims = failedClaims;
+    }
+
+    public Latency getLatency(BookingMetrics.Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getCount(BookingMetrics.Operation operation, BookingMetrics.Outcome outcome) {
+        return outcomes[operation.ordinal()][outcome.ordinal()];
+    }
+
+    public Latency getLockWait() {
+        return lockWait;
+    }
+
+    public Latency getLockHold() {
+        return lockHold;
+    }
+
+    /**
+     * Distribution of retries per seat claim; its count is the number of claims.
+     */
+    public Latency getClaimRetries() {
+        return claimRetries;
+    }
+
+    public long getFailedClaims() {
+        return failedClaims;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (BookingMetrics.Operation operation : BookingMetrics.Operation.values()) {
+            text.append(operation).append(' ').append(getLatency(operation)).append(" outcomes{");
+            String separator = "";
+            for (BookingMetrics.Outcome outcome : BookingMetrics.Outcome.values()) {
+                long count = getCount(operation, outcome);
+                if (count > 0) {
+                    text.append(separator).append(outcome).append('=').append(count);
+                    separator = ", ";
+                }
+            }
+            text.append("}\n");
+        }
+        return text.append("lock wait ").append(lockWait)
+                .append("\nlock hold ").append(lockHold)
+                .append("\nclaim retries ").append(claimRetries).append(" failed=").append(failedClaims)
+                .toString();
+    }
+
+    /**
+     * Summary of one histogram.
+     */
+    public static final class Latency {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Latency(LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.mean = histogram.getMean();
+            this.p50 = histogram.getValueAtPercentile(50.0);
+            this.p90 = histogram.getValueAtPercentile(90.0);
+            this.p99 = histogram.getValueAtPercentile(99.0);
+            this.p999 = histogram.getValueAtPercentile(99.9);
+            this.max = histogram.getMax();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d", count, mean, p50, p90, p99, p999, max);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.concertbooking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.concertbooking.SeatClaim")
+@Label("Seat Claim")
+@Category("Concert Booking")
+@Description("An all-or-nothing claim of a group of seats")
+final class SeatClaimEvent extends jdk.jfr.Event {
+    @Label("Seats")
+    int seats;
+
+    @Label("Retries")
+    @Description("Compare-and-sets lost and backoff rounds waited")
+    int retries;
+
+    @Label("Claimed")
+    boolean claimed;
+}
@@ -0,0 +1,47 @@
+package com.concertbooking.model;
+
+/**
+ * Seat counts of one concert by type and status, as read from its {@link SeatAvailability}.
+ */
+public final class AvailabilitySummary {
+    private final String concertId;
+    private final long[][] counts;
+    private final long[] totals;
+
+    AvailabilitySummary(String concertId, long[][] counts, long[] totals) {
+        this.concertId = concertId;
+        this.counts = counts;
+        this.totals = totals;
+    }
+
+    public String getConcertId() {
+        return concertId;
+    }
+
+    public long get(SeatType type, SeatStatus status) {
+        return counts[type.ordinal()][status.ordinal()];
+    }
+
+    public long getAvailable(SeatType type) {
+        return get(type, SeatStatus.AVAILABLE);
+    }
+
+    public long getTotal(SeatStatus status) {
+        return totals[status.ordinal()];
+    }
+
+    public long getTotalAvailable() {
+        return getTotal(SeatStatus.AVAILABLE);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("AvailabilitySummary{concertId=").append(concertId);
+        for (SeatType type : SeatType.values()) {
+            text.append(", ").append(type).append("{available=").append(getAvailable(type))
+                    .append(", reserved=").append(get(type, SeatStatus.RESERVED))
+                    .append(", booked=").append(get(type, SeatStatus.BOOKED)).append('}');
+        }
+        return text.append('}').toString();
+    }
+}
@@ -1,19 +1,36 @@
 package com.concertbooking.model;
 
+import com.concertbooking.id.CompactIds;
+
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class Booking {
-    private final String id;
+    public static final long NO_NUMERIC_ID = -1L;
+
+    // Bookings made by this version have a numeric id, rendered as text only when asked; older ones
+    // restored from a journal keep their original text id.
+    private final long numericId;
+    private final String textId;
     private final User user;
     private final Concert concert;
     private final List<Seat> seats;
     private final double totalPrice;
     private final AtomicReference<BookingStatus> status;
 
+    public Booking(long id, User user, Concert concert, List<Seat> seats, double totalPrice) {
+        this(id, null, user, concert, seats, totalPrice);
+    }
+
     public Booking(String id, User user, Concert concert, List<Seat> seats, double totalPrice) {
-        this.id = id;
+        this(CompactIds.isCompact(id) ? CompactIds.parse(id) : NO_NUMERIC_ID,
+                CompactIds.isCompact(id) ? null : id, user, concert, seats, totalPrice);
+    }
+
+    private Booking(long numericId, String textId, User user, Concert concert, List<Seat> seats, double totalPrice) {
+        this.numericId = numericId;
+        this.textId = textId;
         this.user = user;
         this.concert = concert;
         this.seats = seats;
@@ -22,7 +39,14 @@ public class Booking {
     }
 
     public String getId() {
-        return id;
+        return textId != null ? textId : CompactIds.format(numericId);
+    }
+
+    /**
+     * The id as a number, or {@link #NO_NUMERIC_ID} for a booking with an older text id.
+     */
+    public long getNumericId() {
+        return numericId;
     }
 
     public User getUser() {
@@ -53,6 +77,13 @@ public class Booking {
         return status.getAndSet(BookingStatus.CANCELLED) != BookingStatus.CANCELLED;
     }
 
+    /**
+     * Undoes a {@link #cancel} that could not be recorded, while the booking still holds its seats.
+     */
+    public boolean reinstate(){
+        return status.compareAndSet(BookingStatus.CANCELLED, BookingStatus.CONFIRM);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -60,11 +91,11 @@ public class Booking {
         if (o == null || getClass() != o.getClass())
             return false;
         Booking booking = (Booking) o;
-        return Objects.equals(id, booking.id);
+        return numericId == booking.numericId && Objects.equals(textId, booking.textId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return textId != null ? textId.hashCode() : Long.hashCode(numericId);
     }
 }
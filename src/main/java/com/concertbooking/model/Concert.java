@@ -1,23 +1,95 @@
 package com.concertbooking.model;
 
 import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeMap;
 
 public class Concert {
+    private static final int[] NO_SLOTS = {};
+    private static final double[] NO_PRICES = {};
+
     private final String id;
     private final String artistName;
     private final String venue;
     private final LocalDateTime dateTime;
     private final List<Seat> seats;
-
+    // Built once at construction and never mutated, so lookups need no synchronization. Null for a
+    // concert laid out from a venue, whose layout finds its seats instead.
+    private final Map<String, Seat> seatIndex;
+    private final VenueLayout layout;
+    // Seats priced other than at the layout's base price: sorted slots and their prices.
+    private final int[] overrideSlots;
+    private final double[] overridePrices;
+    private final SeatStateStore seatStates;
+    private final SeatAvailability availability;
+    private final SalesGate salesGate = new SalesGate();
+    private volatile SeatAllocator seatAllocator;
+    private volatile SeatMapPublisher seatMaps;
 
     public Concert(String id, String artistName, String venue, LocalDateTime dateTime, List<Seat> seats) {
         this.id = id;
         this.artistName = artistName;
         this.venue = venue;
         this.dateTime = dateTime;
-        this.seats = seats;
+        this.seats = List.copyOf(seats);
+        this.seatStates = new SeatStateStore(this.seats.size());
+        this.seatIndex = buildSeatIndex(this.seats, seatStates);
+        this.layout = null;
+        this.overrideSlots = NO_SLOTS;
+        this.overridePrices = NO_PRICES;
+        // Built eagerly: the store is still untouched, so the initial count cannot race a transition.
+        this.availability = SeatAvailability.create(this.seats, seatStates);
+    }
+
+    public Concert(String id, String artistName, VenueLayout layout, LocalDateTime dateTime) {
+        this(id, artistName, layout, dateTime, Map.of());
+    }
+
+    /**
+     * A concert held in a venue with a shared {@link VenueLayout}. It keeps only its own seat states and
+     * the prices in {@code priceOverrides}, by seat id; other seats cost the layout's base price. Its
+     * {@link Seat} objects are made when asked for, so two lookups of a seat give equal but not
+     * identical objects.
+     */
+    public Concert(String id, String artistName, VenueLayout layout, LocalDateTime dateTime, Map<String, Double> priceOverrides) {
+        this.id = id;
+        this.artistName = artistName;
+        this.venue = layout.getVenue();
+        this.dateTime = dateTime;
+        this.layout = layout;
+        this.seatIndex = null;
+        this.seatStates = new SeatStateStore(layout.size());
+        this.seats = new LayoutSeats();
+        TreeMap<Integer, Double> overrides = new TreeMap<>();
+        for (Map.Entry<String, Double> override : priceOverrides.entrySet()) {
+            int slot = layout.slotOf(override.getKey());
+            if (slot < 0) {
+                throw new IllegalArgumentException("Venue " + venue + " has no seat " + override.getKey());
+            }
+            overrides.put(slot, override.getValue());
+        }
+        this.overrideSlots = overrides.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.overridePrices = overrides.values().stream().mapToDouble(Double::doubleValue).toArray();
+        this.availability = SeatAvailability.create(layout, seatStates);
+    }
+
+    private static Map<String, Seat> buildSeatIndex(List<Seat> seats, SeatStateStore seatStates) {
+        Map<String, Seat> index = new HashMap<>(seats.size() * 4 / 3 + 1);
+        for (int slot = 0; slot < seats.size(); slot++) {
+            Seat seat = seats.get(slot);
+            if (index.putIfAbsent(seat.getId(), seat) != null) {
+                throw new IllegalArgumentException("Duplicate seat id " + seat.getId());
+            }
+            seat.attach(seatStates, slot);
+        }
+        return Collections.unmodifiableMap(index);
     }
 
     public String getId() {
@@ -36,10 +108,152 @@ public class Concert {
         return dateTime;
     }
 
+    /**
+     * The seats in slot order. For a concert laid out from a venue, each element is made when read.
+     */
     public List<Seat> getSeats() {
         return seats;
     }
 
+    /**
+     * The shared layout this concert's seats come from, or {@code null} if it was given its own seats.
+     */
+    public VenueLayout getVenueLayout() {
+        return layout;
+    }
+
+    public int getSeatCount() {
+        return seats.size();
+    }
+
+    /**
+     * Prices of the seats that differ from the layout's base price, by slot in slot order. Empty for a
+     * concert given its own seats.
+     */
+    public Map<Integer, Double> getPriceOverrides() {
+        Map<Integer, Double> overrides = new TreeMap<>();
+        for (int i = 0; i < overrideSlots.length; i++) {
+            overrides.put(overrideSlots[i], overridePrices[i]);
+        }
+        return Collections.unmodifiableMap(overrides);
+    }
+
+    /**
+     * Returns the seat with the given id, or {@code null} if this concert has no such seat.
+     */
+    public Seat getSeat(String seatId) {
+        if (layout != null) {
+            int slot = layout.slotOf(seatId);
+            return slot < 0 ? null : seats.get(slot);
+        }
+        return seatIndex.get(seatId);
+    }
+
+    public Seat getSeatAt(int slot) {
+        return seats.get(slot);
+    }
+
+    public SeatStateStore getSeatStates() {
+        return seatStates;
+    }
+
+    /**
+     * Atomically moves all of the given seats of this concert from AVAILABLE to {@code target}. Returns
+     * {@code false}, leaving every seat as it was, if any seat is taken or listed twice.
+     */
+    public boolean claimSeats(List<Seat> seatsToClaim, SeatStatus target) {
+        int[] slots = new int[seatsToClaim.size()];
+        for (int i = 0; i < slots.length; i++) {
+            Seat seat = seatsToClaim.get(i);
+            if (!seat.belongsTo(seatStates)) {
+                throw new IllegalArgumentException("Seat " + seat.getId() + " does not belong to concert " + id);
+            }
+            slots[i] = seat.getSlot();
+        }
+        Arrays.sort(slots);
+        for (int i = 1; i < slots.length; i++) {
+            if (slots[i] == slots[i - 1]) {
+                return false;
+            }
+        }
+        return seatStates.claimAll(slots, target);
+    }
+
+    /**
+     * Best-available allocator for this concert, built on first use so concerts that are only ever
+     * booked by seat id never pay for its index.
+     */
+    public SeatAllocator getSeatAllocator() {
+        SeatAllocator allocator = seatAllocator;
+        if (allocator == null) {
+            synchronized (this) {
+                allocator = seatAllocator;
+                if (allocator == null) {
+                    allocator = SeatAllocator.create(seats, seatStates);
+                    seatAllocator = allocator;
+                }
+            }
+        }
+        return allocator;
+    }
+
+    /**
+     * Latest published seat map, a consistent picture of every seat that is safe to read while bookings
+     * run. Maps are only kept up to date once this has been called, so concerts whose seat map is never
+     * shown do not pay for them.
+     */
+    public SeatMap getSeatMap() {
+        SeatMapPublisher publisher = seatMaps;
+        if (publisher == null) {
+            synchronized (this) {
+                publisher = seatMaps;
+                if (publisher == null) {
+                    publisher = SeatMapPublisher.create(seatStates);
+                    seatMaps = publisher;
+                }
+            }
+        }
+        return publisher.current();
+    }
+
+    /**
+     * Seat counts by type and status, maintained on every transition.
+     */
+    public SeatAvailability getAvailability() {
+        return availability;
+    }
+
+    /**
+     * Admits bookings and holds until sales for this concert are closed.
+     */
+    public SalesGate getSalesGate() {
+        return salesGate;
+    }
+
+    public int getAvailableSeatCount() {
+        return seatStates.count(SeatStatus.AVAILABLE);
+    }
+
+    private double priceAt(int slot) {
+        int override = Arrays.binarySearch(overrideSlots, slot);
+        return override >= 0 ? overridePrices[override] : layout.getBasePrice(slot);
+    }
+
+    // Flyweights over the layout's columns and this concert's seat states; nothing is kept per seat.
+    private final class LayoutSeats extends AbstractList<Seat> implements RandomAccess {
+        @Override
+        public Seat get(int slot) {
+            Objects.checkIndex(slot, layout.size());
+            return new Seat(layout.getSeatId(slot), layout.getSeatNumber(slot), layout.getSeatType(slot),
+                    priceAt(slot), seatStates, slot);
+        }
+
+        @Override
+        public int size() {
+            return layout.size();
+        }
+    }
+
     @Override
     public boolean equals(Object o){
         if(this == o) return true;
@@ -0,0 +1,65 @@
+package com.concertbooking.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What cancelling a whole concert did: the bookings it cancelled, the seats it released and the money
+ * to refund, in total and per user. Bookings that were already cancelled are not counted.
+ */
+public final class ConcertCancellation {
+    private final String concertId;
+    private final int cancelledBookings;
+    private final int releasedSeats;
+    private final int releasedHolds;
+    private final double refundTotal;
+    private final Map<String, Double> refundsByUser;
+
+    public ConcertCancellation(String concertId, int cancelledBookings, int releasedSeats, int releasedHolds,
+                               double refundTotal, Map<String, Double> refundsByUser) {
+        this.concertId = concertId;
+        this.cancelledBookings = cancelledBookings;
+        this.releasedSeats = releasedSeats;
+        this.releasedHolds = releasedHolds;
+        this.refundTotal = refundTotal;
+        this.refundsByUser = Collections.unmodifiableMap(new HashMap<>(refundsByUser));
+    }
+
+    public String getConcertId() {
+        return concertId;
+    }
+
+    public int getCancelledBookings() {
+        return cancelledBookings;
+    }
+
+    /**
+     * Seats freed from the cancelled bookings; seats of released holds are not included.
+     */
+    public int getReleasedSeats() {
+        return releasedSeats;
+    }
+
+    public int getReleasedHolds() {
+        return releasedHolds;
+    }
+
+    public double getRefundTotal() {
+        return refundTotal;
+    }
+
+    /**
+     * Refund owed to each user with a cancelled booking, by user id.
+     */
+    public Map<String, Double> getRefundsByUser() {
+        return refundsByUser;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcertCancellation{concertId=" + concertId + ", cancelledBookings=" + cancelledBookings
+                + ", releasedSeats=" + releasedSeats + ", releasedHolds=" + releasedHolds
+                + ", refundTotal=" + refundTotal + '}';
+    }
+}
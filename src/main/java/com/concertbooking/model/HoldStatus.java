@@ -0,0 +1,5 @@
+package com.concertbooking.model;
+
+public enum HoldStatus {
+    ACTIVE, CONFIRMED, RELEASED, EXPIRED
+}
@@ -0,0 +1,79 @@
+package com.concertbooking.model;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lets bookings and holds for a concert through until sales are closed, and lets whoever closes them
+ * wait for the ones already through to finish.
+ *
+ * <p>Each operation counts itself in before reading the closed flag, and the closer sets the flag before
+ * reading the counts, so an operation either sees the gate closed or is seen by the closer. Counts are
+ * striped over padded slots so that a flash sale's threads do not all update one word.
+ */
+public final class SalesGate {
+    private static final int STRIPES = 8;
+    // One slot per 64-byte line.
+    private static final int PAD = 8;
+    private static final long DRAIN_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final AtomicLongArray inFlight = new AtomicLongArray(STRIPES * PAD);
+    private volatile boolean closed;
+
+    /**
+     * Counts an operation in, or returns {@code false} without counting it if sales are closed. Every
+     * {@code true} must be matched by one {@link #exit}.
+     */
+    public boolean enter() {
+        int index = stripe();
+        inFlight.getAndIncrement(index);
+        if (closed) {
+            inFlight.getAndDecrement(index);
+            return false;
+        }
+        return true;
+    }
+
+    public void exit() {
+        inFlight.getAndDecrement(stripe());
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Closes sales for good and waits up to {@code timeout} for operations already through to finish.
+     * Returns {@code false} if some still had not.
+     */
+    public boolean close(Duration timeout) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlightCount() != 0L) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, DRAIN_POLL_NANOS));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    private long inFlightCount() {
+        long count = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            count += inFlight.get(i * PAD);
+        }
+        return count;
+    }
+
+    // Operations may exit on another stripe than they entered; only the sum matters.
+    private static int stripe() {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PAD;
+    }
+}
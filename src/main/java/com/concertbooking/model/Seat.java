@@ -1,21 +1,28 @@
 package com.concertbooking.model;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class Seat {
     private final String id;
     private final String seatNumber;
     private final SeatType seatType;
     private final double seatPrice;
-    private final AtomicReference<SeatStatus> status;
+    // The seat's status lives in its concert's SeatStateStore; both are set when the concert is built.
+    private SeatStateStore states;
+    private int slot = -1;
 
-    public Seat(String id, String seatNumber, SeatType seatType, double seatPrice, AtomicReference<String> status) {
+    public Seat(String id, String seatNumber, SeatType seatType, double seatPrice) {
         this.id = id;
         this.seatNumber = seatNumber;
         this.seatType = seatType;
         this.seatPrice = seatPrice;
-        this.status = new AtomicReference<>(SeatStatus.AVAILABLE);
+    }
+
+    // A seat of a concert laid out from a VenueLayout: made on demand and attached from the start.
+    Seat(String id, String seatNumber, SeatType seatType, double seatPrice, SeatStateStore states, int slot) {
+        this(id, seatNumber, seatType, seatPrice);
+        this.states = states;
+        this.slot = slot;
     }
 
     public String getId() {
@@ -34,24 +41,54 @@ public class Seat {
         return seatPrice;
     }
 
+    /**
+     * Dense position of this seat within its concert, or -1 if the seat has not been added to a concert yet.
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    void attach(SeatStateStore states, int slot) {
+        if (this.states != null) {
+            throw new IllegalArgumentException("Seat " + id + " already belongs to a concert");
+        }
+        this.states = states;
+        this.slot = slot;
+    }
+
+    boolean belongsTo(SeatStateStore states) {
+        return this.states == states;
+    }
+
     public SeatStatus getStatus() {
-        return status.get();
+        return states().get(slot);
     }
 
     public boolean book(){
-        return status.compareAndSet(SeatStatus.AVAILABLE, SeatStatus.BOOKED);
+        return states().compareAndSet(slot, SeatStatus.AVAILABLE, SeatStatus.BOOKED);
     }
 
     public boolean reserve(){
-        return status.compareAndSet(SeatStatus.AVAILABLE, SeatStatus.RESERVED);
+        return states().compareAndSet(slot, SeatStatus.AVAILABLE, SeatStatus.RESERVED);
     }
 
     public boolean release() {
-        return status.compareAndSet(SeatStatus.BOOKED, SeatStatus.RESERVED);
+        return states().compareAndSet(slot, SeatStatus.BOOKED, SeatStatus.AVAILABLE);
+    }
+
+    public boolean confirmReservation(){
+        return states().compareAndSet(slot, SeatStatus.RESERVED, SeatStatus.BOOKED);
     }
 
     public boolean unreserve(){
-        return status.compareAndSet(SeatStatus.RESERVED, SeatStatus.AVAILABLE);
+        return states().compareAndSet(slot, SeatStatus.RESERVED, SeatStatus.AVAILABLE);
+    }
+
+    private SeatStateStore states() {
+        if (states == null) {
+            throw new IllegalStateException("Seat " + id + " has not been added to a concert");
+        }
+        return states;
     }
 
     @Override
@@ -0,0 +1,400 @@
+package com.concertbooking.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Best-available allocation of adjacent seats for one concert.
+ *
+ * <p>Seat numbers are read as a row label followed by a position ("A12", "AA-3"); seats whose number
+ * does not end in a position are never offered. Seats of one type with consecutive positions in a row
+ * form a block. Each block keeps a bitmap of its free seats and the length of its longest free run, and a
+ * max-tree per seat type over those lengths finds the best block that can fit a group in O(log blocks),
+ * so an allocation never walks the venue. Rows rank front to back (A before B before AA, 1 before 2);
+ * within a row, blocks and seats nearer the centre rank first.
+ *
+ * <p>The bitmaps follow the {@link SeatStateStore} through a {@link SeatStateListener}, so seats booked by
+ * id or released by a cancellation show up here too. An allocation carves its seats out of the bitmap
+ * under the block's lock before claiming them, which sends the next concurrent buyer to the next best
+ * seats instead of into a CAS race for the same ones. The claim itself is the usual all-or-nothing
+ * {@link SeatStateStore#claimAll}; the index is only ever a hint for where to try.
+ */
+public final class SeatAllocator {
+    private static final int MAX_FAILED_CLAIMS = 8;
+    private static final Comparator<String> ROW_ORDER = Comparator.comparingInt(String::length)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final List<Seat> seats;
+    private final SeatStateStore states;
+    private final Map<SeatType, Tier> tiers = new EnumMap<>(SeatType.class);
+    // Per slot: its block, and its offset in that block. Slots without a position map to null.
+    private final Block[] blockOfSlot;
+    private final int[] offsetOfSlot;
+
+    private SeatAllocator(List<Seat> seats, SeatStateStore states) {
+        this.seats = seats;
+        this.states = states;
+        this.blockOfSlot = new Block[seats.size()];
+        this.offsetOfSlot = new int[seats.size()];
+        buildBlocks();
+    }
+
+    static SeatAllocator create(List<Seat> seats, SeatStateStore states) {
+        SeatAllocator allocator = new SeatAllocator(seats, states);
+        // Listen before reading the initial state, so nothing that changes in between is missed.
+        states.addListener(allocator.new Tracker());
+        allocator.refreshAll();
+        return allocator;
+    }
+
+    private void refreshAll() {
+        for (Tier tier : tiers.values()) {
+            for (Block block : tier.blocks) {
+                synchronized (block) {
+                    for (int offset = 0; offset < block.slots.length; offset++) {
+                        block.refresh(offset);
+                    }
+                    block.updateLongestRun();
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims {@code count} adjacent seats of the given type, best first, moving them from AVAILABLE to
+     * {@code target}. Returns the seats in position order, or an empty list if no block of that size is
+     * free (or the claim kept losing races for the few that are).
+     */
+    public List<Seat> allocate(int count, SeatType type, SeatStatus target) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Seat count must be positive");
+        }
+        Tier tier = tiers.get(type);
+        if (tier == null) {
+            return new ArrayList<>();
+        }
+        int from = 0;
+        int failedClaims = 0;
+        while (failedClaims < MAX_FAILED_CLAIMS) {
+            int leaf = tier.longestRuns.firstAtLeast(count, from);
+            if (leaf < 0) {
+                break;
+            }
+            Block block = tier.blocks[leaf];
+            int start;
+            synchronized (block) {
+                start = block.carve(count);
+            }
+            if (start < 0) {
+                // The tree was a step behind the block; look further along.
+                from = leaf + 1;
+                continue;
+            }
+            int[] claimed = Arrays.copyOfRange(block.slots, start, start + count);
+            int[] sorted = claimed.clone();
+            Arrays.sort(sorted);
+            boolean won = states.claimAll(sorted, target);
+            synchronized (block) {
+                block.settle(start, count);
+            }
+            if (won) {
+                List<Seat> result = new ArrayList<>(count);
+                for (int slot : claimed) {
+                    result.add(seats.get(slot));
+                }
+                return result;
+            }
+            // Settling re-read the seats that beat us, so the same block may still have room elsewhere.
+            failedClaims++;
+            from = leaf;
+        }
+        return new ArrayList<>();
+    }
+
+    private void buildBlocks() {
+        Map<String, List<Integer>> slotsByRow = new HashMap<>();
+        int[] positions = new int[seats.size()];
+        String[] rows = new String[seats.size()];
+        for (int slot = 0; slot < seats.size(); slot++) {
+            String seatNumber = seats.get(slot).getSeatNumber();
+            int digits = seatNumber == null ? 0 : seatNumber.length();
+            while (digits > 0 && Character.isDigit(seatNumber.charAt(digits - 1))) {
+                digits--;
+            }
+            if (seatNumber == null || digits == seatNumber.length() || seatNumber.length() - digits > 9) {
+                continue;
+            }
+            positions[slot] = Integer.parseInt(seatNumber.substring(digits));
+            int rowEnd = digits;
+            while (rowEnd > 0 && !Character.isLetterOrDigit(seatNumber.charAt(rowEnd - 1))) {
+                rowEnd--;
+            }
+            rows[slot] = seatNumber.substring(0, rowEnd).toUpperCase();
+            slotsByRow.computeIfAbsent(rows[slot], k -> new ArrayList<>()).add(slot);
+        }
+
+        Map<SeatType, List<Block>> blocksByType = new EnumMap<>(SeatType.class);
+        List<String> rowLabels = new ArrayList<>(slotsByRow.keySet());
+        rowLabels.sort(ROW_ORDER);
+        for (String row : rowLabels) {
+            List<Integer> rowSlots = slotsByRow.get(row);
+            rowSlots.sort(Comparator.comparingInt(slot -> positions[slot]));
+            double centre = (positions[rowSlots.get(0)] + positions[rowSlots.get(rowSlots.size() - 1)]) / 2.0;
+            List<Block> rowBlocks = new ArrayList<>();
+            int blockStart = 0;
+            for (int i = 1; i <= rowSlots.size(); i++) {
+                boolean split = i == rowSlots.size();
+                if (!split) {
+                    Seat previous = seats.get(rowSlots.get(i - 1));
+                    Seat current = seats.get(rowSlots.get(i));
+                    split = positions[rowSlots.get(i)] != positions[rowSlots.get(i - 1)] + 1
+                            || current.getSeatType() != previous.getSeatType();
+                }
+                if (split) {
+                    int[] blockSlots = rowSlots.subList(blockStart, i).stream().mapToInt(Integer::intValue).toArray();
+                    rowBlocks.add(new Block(blockSlots, centre - positions[blockSlots[0]]));
+                    blockStart = i;
+                }
+            }
+            // Blocks of a row straddling the centre aisle rank ahead of the wings.
+            rowBlocks.sort(Comparator.comparingDouble(Block::distanceFromCentre));
+            for (Block block : rowBlocks) {
+                blocksByType.computeIfAbsent(seats.get(block.slots[0]).getSeatType(), k -> new ArrayList<>()).add(block);
+            }
+        }
+
+        for (Map.Entry<SeatType, List<Block>> entry : blocksByType.entrySet()) {
+            Tier tier = new Tier(entry.getValue().toArray(new Block[0]));
+            tiers.put(entry.getKey(), tier);
+            for (int leaf = 0; leaf < tier.blocks.length; leaf++) {
+                Block block = tier.blocks[leaf];
+                block.tier = tier;
+                block.leaf = leaf;
+                for (int offset = 0; offset < block.slots.length; offset++) {
+                    blockOfSlot[block.slots[offset]] = block;
+                    offsetOfSlot[block.slots[offset]] = offset;
+                }
+            }
+        }
+    }
+
+    private static final class Tier {
+        private final Block[] blocks;
+        private final MaxTree longestRuns;
+
+        Tier(Block[] blocks) {
+            this.blocks = blocks;
+            this.longestRuns = new MaxTree(blocks.length);
+        }
+    }
+
+    /**
+     * Seats of one type at consecutive positions in one row, in position order. Guarded by its own monitor.
+     */
+    private final class Block {
+        private final int[] slots;
+        // Row centre, measured in seats from the first seat of this block.
+        private final double centre;
+        private final long[] free;
+        private final long[] carved;
+        private Tier tier;
+        private int leaf;
+        private int longestRun;
+
+        Block(int[] slots, double centre) {
+            this.slots = slots;
+            this.centre = centre;
+            this.free = new long[(slots.length + 63) >>> 6];
+            this.carved = new long[free.length];
+        }
+
+        double distanceFromCentre() {
+            return Math.abs(centre - (slots.length - 1) / 2.0);
+        }
+
+        /**
+         * Takes the free run of {@code count} seats nearest the row centre out of the index and returns its
+         * first offset, or -1 if no run is long enough.
+         */
+        int carve(int count) {
+            if (longestRun < count) {
+                return -1;
+            }
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            int offset = nextFree(0);
+            while (offset >= 0) {
+                int runEnd = nextTaken(offset);
+                if (runEnd - offset >= count) {
+                    // The group's midpoint as close to the centre as this run allows.
+                    long ideal = Math.round(centre - (count - 1) / 2.0);
+                    int start = (int) Math.max(offset, Math.min(ideal, runEnd - count));
+                    double distance = Math.abs(start + (count - 1) / 2.0 - centre);
+                    if (distance < bestDistance) {
+                        best = start;
+                        bestDistance = distance;
+                    }
+                }
+                offset = runEnd < slots.length ? nextFree(runEnd) : -1;
+            }
+            if (best < 0) {
+                return -1;
+            }
+            for (int i = best; i < best + count; i++) {
+                carved[i >>> 6] |= 1L << i;
+                free[i >>> 6] &= ~(1L << i);
+            }
+            updateLongestRun();
+            return best;
+        }
+
+        void settle(int start, int count) {
+            for (int i = start; i < start + count; i++) {
+                carved[i >>> 6] &= ~(1L << i);
+                refresh(i);
+            }
+            updateLongestRun();
+        }
+
+        void refresh(int offset) {
+            if ((carved[offset >>> 6] & (1L << offset)) == 0 && states.mayBeAvailable(slots[offset])) {
+                free[offset >>> 6] |= 1L << offset;
+            } else {
+                free[offset >>> 6] &= ~(1L << offset);
+            }
+        }
+
+        void updateLongestRun() {
+            int longest = 0;
+            int offset = nextFree(0);
+            while (offset >= 0) {
+                int runEnd = nextTaken(offset);
+                longest = Math.max(longest, runEnd - offset);
+                offset = runEnd < slots.length ? nextFree(runEnd) : -1;
+            }
+            if (longest != longestRun) {
+                longestRun = longest;
+                if (tier != null) {
+                    tier.longestRuns.set(leaf, longest);
+                }
+            }
+        }
+
+        private int nextFree(int from) {
+            int word = from >>> 6;
+            if (word >= free.length) {
+                return -1;
+            }
+            long bits = free[word] & (-1L << from);
+            while (bits == 0) {
+                if (++word == free.length) {
+                    return -1;
+                }
+                bits = free[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        // First offset at or after {@code from} that is not free, or the block length.
+        private int nextTaken(int from) {
+            int word = from >>> 6;
+            long bits = ~free[word] & (-1L << from);
+            while (bits == 0) {
+                if (++word == free.length) {
+                    return slots.length;
+                }
+                bits = ~free[word];
+            }
+            return Math.min(slots.length, (word << 6) + Long.numberOfTrailingZeros(bits));
+        }
+    }
+
+    /**
+     * Keeps the index in step with transitions made outside the allocator. A transition only matters if
+     * it enters or leaves AVAILABLE, and the block re-reads the seat rather than trusting the event.
+     */
+    private final class Tracker implements SeatStateListener {
+        @Override
+        public void onTransition(int slot, SeatStatus from, SeatStatus to) {
+            Block block = blockOfSlot[slot];
+            if (block == null || (from != SeatStatus.AVAILABLE && to != SeatStatus.AVAILABLE)) {
+                return;
+            }
+            synchronized (block) {
+                block.refresh(offsetOfSlot[slot]);
+                block.updateLongestRun();
+            }
+        }
+
+        @Override
+        public void onTransition(int[] slots, SeatStatus from, SeatStatus to) {
+            if (from != SeatStatus.AVAILABLE && to != SeatStatus.AVAILABLE) {
+                return;
+            }
+            for (int slot : slots) {
+                Block block = blockOfSlot[slot];
+                if (block == null) {
+                    continue;
+                }
+                synchronized (block) {
+                    block.refresh(offsetOfSlot[slot]);
+                    block.updateLongestRun();
+                }
+            }
+        }
+
+        @Override
+        public void onRestore() {
+            refreshAll();
+        }
+    }
+
+    /**
+     * Max segment tree over the longest free run of each block. Reads are lock-free and may be a little
+     * stale, which only costs a wasted probe; writers serialize on the tree.
+     */
+    private static final class MaxTree {
+        private final int leaves;
+        private final AtomicIntegerArray nodes;
+
+        MaxTree(int size) {
+            int leaves = 1;
+            while (leaves < size) {
+                leaves <<= 1;
+            }
+            this.leaves = leaves;
+            this.nodes = new AtomicIntegerArray(2 * leaves);
+        }
+
+        synchronized void set(int leaf, int value) {
+            int node = leaves + leaf;
+            nodes.set(node, value);
+            for (node >>>= 1; node > 0; node >>>= 1) {
+                nodes.set(node, Math.max(nodes.get(2 * node), nodes.get(2 * node + 1)));
+            }
+        }
+
+        // Leftmost leaf at or after {@code from} whose value is at least {@code min}, or -1.
+        int firstAtLeast(int min, int from) {
+            return from >= leaves ? -1 : find(1, 0, leaves - 1, from, min);
+        }
+
+        private int find(int node, int low, int high, int from, int min) {
+            if (high < from || nodes.get(node) < min) {
+                return -1;
+            }
+            if (low == high) {
+                return low;
+            }
+            int mid = (low + high) >>> 1;
+            int left = find(2 * node, low, mid, from, min);
+            return left >= 0 ? left : find(2 * node + 1, mid + 1, high, from, min);
+        }
+    }
+}
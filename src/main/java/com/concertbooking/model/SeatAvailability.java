@@ -0,0 +1,127 @@
+package com.concertbooking.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running counts of a concert's seats by {@link SeatType} and {@link SeatStatus}, kept current by
+ * listening to its {@link SeatStateStore}.
+ *
+ * <p>Each count is a {@link LongAdder}, so the transitions of concurrent bookings update separate cells
+ * rather than one shared word. A seat taken by a multi-seat claim stays counted as AVAILABLE until the
+ * claim commits, and a reader may see one transition's decrement without its increment, so counts can
+ * lag the seat states by the transitions in flight. Seats without a type are only counted in the totals.
+ */
+public final class SeatAvailability {
+    private static final SeatType[] TYPES = SeatType.values();
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+    private static final int UNTYPED = VenueLayout.UNTYPED;
+
+    private final SeatStateStore states;
+    // Row per seat type, plus one for seats without a type. Shared with the venue layout, if there is one.
+    private final byte[] rowOfSlot;
+    private final LongAdder[][] counts = new LongAdder[TYPES.length + 1][STATUSES.length];
+
+    private SeatAvailability(byte[] rowOfSlot, SeatStateStore states) {
+        this.states = states;
+        this.rowOfSlot = rowOfSlot;
+        for (LongAdder[] row : counts) {
+            for (int status = 0; status < row.length; status++) {
+                row[status] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Counts the seats as they are now and starts tracking them. Must be created before anything else can
+     * change the states, since transitions made while the initial count is taken would be counted twice.
+     */
+    static SeatAvailability create(List<Seat> seats, SeatStateStore states) {
+        byte[] rowOfSlot = new byte[seats.size()];
+        for (int slot = 0; slot < rowOfSlot.length; slot++) {
+            SeatType type = seats.get(slot).getSeatType();
+            rowOfSlot[slot] = (byte) (type == null ? UNTYPED : type.ordinal());
+        }
+        return create(rowOfSlot, states);
+    }
+
+    static SeatAvailability create(VenueLayout layout, SeatStateStore states) {
+        return create(layout.typeCodes(), states);
+    }
+
+    private static SeatAvailability create(byte[] rowOfSlot, SeatStateStore states) {
+        SeatAvailability availability = new SeatAvailability(rowOfSlot, states);
+        availability.recount();
+        states.addListener(availability.new Counter());
+        return availability;
+    }
+
+    public long count(SeatType type, SeatStatus status) {
+        return counts[type.ordinal()][status.ordinal()].sum();
+    }
+
+    public long total(SeatStatus status) {
+        long total = 0L;
+        for (LongAdder[] row : counts) {
+            total += row[status.ordinal()].sum();
+        }
+        return total;
+    }
+
+    public AvailabilitySummary summary(String concertId) {
+        long[][] summary = new long[TYPES.length][STATUSES.length];
+        for (int type = 0; type < TYPES.length; type++) {
+            for (int status = 0; status < STATUSES.length; status++) {
+                summary[type][status] = counts[type][status].sum();
+            }
+        }
+        long[] totals = new long[STATUSES.length];
+        for (int status = 0; status < STATUSES.length; status++) {
+            totals[status] = total(STATUSES[status]);
+        }
+        return new AvailabilitySummary(concertId, summary, totals);
+    }
+
+    private void recount() {
+        long[][] fresh = new long[counts.length][STATUSES.length];
+        for (int slot = 0; slot < rowOfSlot.length; slot++) {
+            fresh[rowOfSlot[slot]][states.get(slot).ordinal()]++;
+        }
+        for (int row = 0; row < counts.length; row++) {
+            for (int status = 0; status < STATUSES.length; status++) {
+                counts[row][status].reset();
+                counts[row][status].add(fresh[row][status]);
+            }
+        }
+    }
+
+    private final class Counter implements SeatStateListener {
+        @Override
+        public void onTransition(int slot, SeatStatus from, SeatStatus to) {
+            LongAdder[] row = counts[rowOfSlot[slot]];
+            row[to.ordinal()].increment();
+            row[from.ordinal()].decrement();
+        }
+
+        @Override
+        public void onTransition(int[] slots, SeatStatus from, SeatStatus to) {
+            // Claims are usually a few seats of one type, so add each run of equal rows in one go.
+            int i = 0;
+            while (i < slots.length) {
+                int row = rowOfSlot[slots[i]];
+                int run = 1;
+                while (i + run < slots.length && rowOfSlot[slots[i + run]] == row) {
+                    run++;
+                }
+                counts[row][to.ordinal()].add(run);
+                counts[row][from.ordinal()].add(-run);
+                i += run;
+            }
+        }
+
+        @Override
+        public void onRestore() {
+            recount();
+        }
+    }
+}
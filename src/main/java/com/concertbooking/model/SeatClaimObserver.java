@@ -0,0 +1,13 @@
+package com.concertbooking.model;
+
+/**
+ * Process-wide hook told about every {@link SeatStateStore#claimAll} call, for instrumentation. Called on
+ * the claiming thread, so implementations must be fast and must not throw.
+ */
+public interface SeatClaimObserver {
+    /**
+     * A claim of {@code seats} seats finished. {@code retries} counts the compare-and-sets it lost and the
+     * backoff rounds it waited out on seats held by other claims.
+     */
+    void onClaim(int seats, int retries, boolean claimed);
+}
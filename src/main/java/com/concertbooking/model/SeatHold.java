@@ -0,0 +1,83 @@
+package com.concertbooking.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Seats kept RESERVED for one user until {@link #getExpiresAt()} while they pay. Exactly one of
+ * confirm, release and expire can succeed, so the seats are handed on or freed exactly once.
+ */
+public class SeatHold {
+    private final String id;
+    private final User user;
+    private final Concert concert;
+    private final List<Seat> seats;
+    private final double totalPrice;
+    private final Instant expiresAt;
+    private final AtomicReference<HoldStatus> status;
+
+    public SeatHold(String id, User user, Concert concert, List<Seat> seats, double totalPrice, Instant expiresAt) {
+        this.id = id;
+        this.user = user;
+        this.concert = concert;
+        this.seats = seats;
+        this.totalPrice = totalPrice;
+        this.expiresAt = expiresAt;
+        this.status = new AtomicReference<>(HoldStatus.ACTIVE);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Concert getConcert() {
+        return concert;
+    }
+
+    public List<Seat> getSeats() {
+        return seats;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public HoldStatus getStatus() {
+        return status.get();
+    }
+
+    public boolean confirm() {
+        return status.compareAndSet(HoldStatus.ACTIVE, HoldStatus.CONFIRMED);
+    }
+
+    public boolean release() {
+        return status.compareAndSet(HoldStatus.ACTIVE, HoldStatus.RELEASED);
+    }
+
+    public boolean expire() {
+        return status.compareAndSet(HoldStatus.ACTIVE, HoldStatus.EXPIRED);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SeatHold hold = (SeatHold) o;
+        return Objects.equals(id, hold.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
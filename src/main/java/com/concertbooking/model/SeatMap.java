@@ -0,0 +1,70 @@
+package com.concertbooking.model;
+
+/**
+ * Immutable, versioned picture of a concert's seat states, for rendering seat maps.
+ *
+ * <p>Unlike reading {@link Seat#getStatus()} seat by seat while bookings run, a seat map never shows
+ * part of a multi-seat claim: every claim is either wholly in it or not at all, and seats an unfinished
+ * claim is still acquiring show as AVAILABLE. Cancellations release their seats one at a time, so a
+ * seat map can catch one half done. Reads take no lock and allocate nothing. Get the latest version from
+ * {@link Concert#getSeatMap()}; a newer one is published after each batch of transitions.
+ */
+public final class SeatMap {
+    static final int WORDS_PER_PAGE = SeatStateStore.BLOCK_WORDS;
+    static final int SLOTS_PER_PAGE = WORDS_PER_PAGE * SeatStateStore.SLOTS_PER_WORD;
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+
+    private final long version;
+    private final int size;
+    // Pages a version did not change are shared with the version before it.
+    final long[][] pages;
+
+    SeatMap(long version, int size, long[][] pages) {
+        this.version = version;
+        this.size = size;
+        this.pages = pages;
+    }
+
+    /**
+     * Increases with every version published for the concert.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Status of the seat in the given slot, as {@link Seat#getSlot()} numbers them.
+     */
+    public SeatStatus getStatus(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of range for " + size + " seats");
+        }
+        long word = pages[slot / SLOTS_PER_PAGE][(slot / SeatStateStore.SLOTS_PER_WORD) % WORDS_PER_PAGE];
+        return STATUSES[(int) ((word >>> ((slot % SeatStateStore.SLOTS_PER_WORD) * SeatStateStore.BITS_PER_SLOT))
+                & SeatStateStore.SLOT_MASK)];
+    }
+
+    public boolean isAvailable(int slot) {
+        return getStatus(slot) == SeatStatus.AVAILABLE;
+    }
+
+    public int count(SeatStatus status) {
+        long pattern = SeatStateStore.LOW_BITS * status.ordinal();
+        int count = 0;
+        for (long[] page : pages) {
+            for (long word : page) {
+                long diff = word ^ pattern;
+                count += Long.bitCount(~(diff | (diff >>> 1)) & SeatStateStore.LOW_BITS);
+            }
+        }
+        // Unused slots past the end read as AVAILABLE.
+        if (status == SeatStatus.AVAILABLE) {
+            count -= pages.length * SLOTS_PER_PAGE - size;
+        }
+        return count;
+    }
+}
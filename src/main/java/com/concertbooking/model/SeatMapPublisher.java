@@ -0,0 +1,151 @@
+package com.concertbooking.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes a concert's {@link SeatMap} versions, copy-on-write.
+ *
+ * <p>Every transition marks the map stale and then tries to publish. Only one thread publishes at a
+ * time; a writer that finds another thread publishing leaves, and that publisher picks up its
+ * transition on its next round. Under load one copy therefore covers a whole batch of transitions. The
+ * store records which blocks of seats changed, so a copy reads and allocates only the pages that did;
+ * the rest are shared with the previous version.
+ */
+final class SeatMapPublisher implements SeatStateListener {
+    private static final int MAX_SPINS = 4;
+    // Copy attempts before giving the map up as stale; the claim in the way publishes once it commits.
+    private static final int MAX_COPY_ROUNDS = 64;
+
+    private final SeatStateStore states;
+    private final int pageCount;
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    // Only touched by the publishing thread. Changed pages carry over from a copy that gave up.
+    private final long[] scratch;
+    private final long[] changedPages;
+    private volatile boolean stale;
+    private volatile SeatMap current;
+
+    private SeatMapPublisher(SeatStateStore states) {
+        this.states = states;
+        this.pageCount = states.blockCount();
+        this.scratch = new long[pageCount * SeatMap.WORDS_PER_PAGE];
+        this.changedPages = new long[(pageCount + 63) / 64];
+    }
+
+    /**
+     * Starts tracking changes before taking the first copy, so a store already in use is safe.
+     */
+    static SeatMapPublisher create(SeatStateStore states) {
+        SeatMapPublisher publisher = new SeatMapPublisher(states);
+        states.trackChangedBlocks();
+        states.addListener(publisher);
+        publisher.stale = true;
+        publisher.publish();
+        return publisher;
+    }
+
+    SeatMap current() {
+        SeatMap map = current;
+        // Another thread can still be taking the first copy that create() asked for, or it gave up.
+        while (map == null) {
+            publish();
+            Thread.onSpinWait();
+            map = current;
+        }
+        return map;
+    }
+
+    @Override
+    public void onTransition(int slot, SeatStatus from, SeatStatus to) {
+        stale = true;
+        publish();
+    }
+
+    @Override
+    public void onTransition(int[] slots, SeatStatus from, SeatStatus to) {
+        stale = true;
+        publish();
+    }
+
+    @Override
+    public void onRestore() {
+        stale = true;
+        publish();
+    }
+
+    private void publish() {
+        // Re-check after letting go: a writer that marked the map stale while we held it has left it to us.
+        while (stale && publishing.compareAndSet(false, true)) {
+            boolean gaveUp = false;
+            try {
+                stale = false;
+                SeatMap previous = current;
+                SeatMap next = copy(previous);
+                if (next == null) {
+                    stale = true;
+                    gaveUp = true;
+                } else if (next != previous) {
+                    current = next;
+                }
+            } finally {
+                publishing.set(false);
+            }
+            // Leave the map stale rather than spin: a claim still committing publishes once it is done. One that
+            // finished meanwhile may have found us publishing and left its transition to us, so go round again.
+            if (gaveUp && states.spanningCommitInFlight()) {
+                return;
+            }
+        }
+    }
+
+    // Returns null, keeping the changed pages for the next try, if no consistent copy could be taken.
+    private SeatMap copy(SeatMap previous) {
+        int spins = 0;
+        while (!states.copyBlocks(changedPages, previous == null, scratch)) {
+            // A claim spanning several words is part way through committing; it only has a few words left.
+            if (spins == MAX_COPY_ROUNDS) {
+                return null;
+            }
+            if (++spins < MAX_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        long[][] pages = previous == null ? new long[pageCount][] : previous.pages;
+        boolean changed = previous == null;
+        for (int i = 0; i < changedPages.length; i++) {
+            for (long bits = changedPages[i]; bits != 0L; bits &= bits - 1) {
+                int page = (i << 6) + Long.numberOfTrailingZeros(bits);
+                if (page >= pageCount) {
+                    break;
+                }
+                int from = page * SeatMap.WORDS_PER_PAGE;
+                int to = from + SeatMap.WORDS_PER_PAGE;
+                for (int word = from; word < to; word++) {
+                    scratch[word] = committed(scratch[word]);
+                }
+                if (previous != null && Arrays.equals(previous.pages[page], 0, SeatMap.WORDS_PER_PAGE, scratch, from, to)) {
+                    continue;
+                }
+                if (!changed) {
+                    pages = pages.clone();
+                    changed = true;
+                }
+                pages[page] = Arrays.copyOfRange(scratch, from, to);
+            }
+        }
+        Arrays.fill(changedPages, 0L);
+        if (!changed) {
+            return previous;
+        }
+        return new SeatMap(previous == null ? 1L : previous.getVersion() + 1, states.size(), pages);
+    }
+
+    // Seats held by an unfinished claim were AVAILABLE when it started and stay so until it commits.
+    private static long committed(long word) {
+        long claiming = word & (word >>> 1) & SeatStateStore.LOW_BITS;
+        return word & ~(claiming | (claiming << 1));
+    }
+}
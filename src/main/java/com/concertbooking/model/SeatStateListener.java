@@ -0,0 +1,29 @@
+package com.concertbooking.model;
+
+/**
+ * Observer of seat transitions in a {@link SeatStateStore}.
+ *
+ * <p>Called on the thread that made the transition, after it is visible, so implementations must be
+ * fast and must not throw. A multi-seat claim is reported once, when it commits; claims that roll back
+ * are not reported. Notifications from different threads can arrive out of order, so listeners that
+ * need the current state should re-read it rather than replay the reported transitions.
+ */
+public interface SeatStateListener {
+    void onTransition(int slot, SeatStatus from, SeatStatus to);
+
+    /**
+     * Every slot in {@code slots} moved from {@code from} to {@code to}. The array is sorted ascending and
+     * must not be modified or retained.
+     */
+    default void onTransition(int[] slots, SeatStatus from, SeatStatus to) {
+        for (int slot : slots) {
+            onTransition(slot, from, to);
+        }
+    }
+
+    /**
+     * Every slot was overwritten at once, as when a snapshot is restored. Re-read whatever is needed.
+     */
+    default void onRestore() {
+    }
+}
@@ -0,0 +1,376 @@
+package com.concertbooking.model;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat states of one concert, packed two bits per slot into 64-bit words.
+ *
+ * <p>A slot's two bits hold the ordinal of its {@link SeatStatus}, so a freshly created store has every
+ * seat AVAILABLE. Transitions are a compare-and-set on the whole word, retried only when a neighbouring
+ * slot in the same word changed underneath us. The fourth bit pattern marks a seat that a multi-seat
+ * {@link #claimAll claim} is holding while it acquires the rest of its group; readers see it as RESERVED.
+ */
+public final class SeatStateStore {
+    static final int BITS_PER_SLOT = 2;
+    static final int SLOTS_PER_WORD = Long.SIZE / BITS_PER_SLOT;
+    static final long SLOT_MASK = (1L << BITS_PER_SLOT) - 1;
+    static final long LOW_BITS = 0x5555_5555_5555_5555L;
+    static final int CLAIMING = 3;
+    // Granularity of change tracking, and so of a SeatMap page.
+    static final int BLOCK_WORDS = 16;
+    private static final SeatStatus[] STATUSES = {
+            SeatStatus.AVAILABLE, SeatStatus.BOOKED, SeatStatus.RESERVED, SeatStatus.RESERVED
+    };
+    private static final int MAX_BACKOFF_ROUNDS = 16;
+    private static final SeatStateListener[] NO_LISTENERS = {};
+    // Set in claimWord's result alongside the retry count when the word could not be claimed.
+    private static final int CLAIM_FAILED = 1 << 30;
+    private static volatile SeatClaimObserver claimObserver;
+
+    private final int size;
+    private final AtomicLongArray words;
+    private volatile SeatStateListener[] listeners = NO_LISTENERS;
+    // A claim spanning several words commits them one at a time; these bracket that window for copyBlocks.
+    private final AtomicLong spanningCommitsStarted = new AtomicLong();
+    private final AtomicLong spanningCommitsFinished = new AtomicLong();
+    // One bit per block of words changed since it was last taken; null until a seat map asks for it.
+    private volatile AtomicLongArray changedBlocks;
+
+    public SeatStateStore(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Seat count must not be negative");
+        }
+        this.size = size;
+        this.words = new AtomicLongArray((size + SLOTS_PER_WORD - 1) / SLOTS_PER_WORD);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SeatStatus get(int slot) {
+        checkSlot(slot);
+        return STATUSES[bits(slot)];
+    }
+
+    // True for AVAILABLE seats and for seats an in-flight claim may still hand back.
+    boolean mayBeAvailable(int slot) {
+        checkSlot(slot);
+        int bits = bits(slot);
+        return bits == SeatStatus.AVAILABLE.ordinal() || bits == CLAIMING;
+    }
+
+    private int bits(int slot) {
+        return (int) ((words.get(slot / SLOTS_PER_WORD) >>> shift(slot)) & SLOT_MASK);
+    }
+
+    /**
+     * Installs the observer every store reports its claims to, or removes it when {@code null}.
+     */
+    public static void setClaimObserver(SeatClaimObserver observer) {
+        claimObserver = observer;
+    }
+
+    public synchronized void addListener(SeatStateListener listener) {
+        SeatStateListener[] current = listeners;
+        SeatStateListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    public boolean compareAndSet(int slot, SeatStatus expect, SeatStatus update) {
+        checkSlot(slot);
+        int index = slot / SLOTS_PER_WORD;
+        int shift = shift(slot);
+        long expectBits = (long) expect.ordinal() << shift;
+        long updateBits = (long) update.ordinal() << shift;
+        long mask = SLOT_MASK << shift;
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != expectBits) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, (word & ~mask) | updateBits)) {
+                markChanged(index);
+                for (SeatStateListener listener : listeners) {
+                    listener.onTransition(slot, expect, update);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves every given slot from AVAILABLE to {@code target}, or none of them.
+     *
+     * <p>Slots must be distinct and sorted ascending. They are acquired word by word in that order, so two
+     * overlapping claims always meet on the lowest shared seat and cannot wait on each other in a cycle.
+     * Seats that are BOOKED or RESERVED fail the claim immediately; seats held by another in-flight claim
+     * are retried with bounded backoff, since that claim may still roll back. On failure everything
+     * acquired so far is returned to AVAILABLE.
+     */
+    public boolean claimAll(int[] slots, SeatStatus target) {
+        int claimed = 0;
+        int retries = 0;
+        while (claimed < slots.length) {
+            int index = slots[claimed] / SLOTS_PER_WORD;
+            int end = claimed;
+            long mask = 0L;
+            while (end < slots.length && slots[end] / SLOTS_PER_WORD == index) {
+                checkSlot(slots[end]);
+                mask |= SLOT_MASK << shift(slots[end]);
+                end++;
+            }
+            int result = claimWord(index, mask);
+            retries += result & ~CLAIM_FAILED;
+            if ((result & CLAIM_FAILED) != 0) {
+                replaceAll(slots, claimed, CLAIMING, SeatStatus.AVAILABLE.ordinal());
+                reportClaim(slots.length, retries, false);
+                return false;
+            }
+            claimed = end;
+        }
+        boolean spanning = slots.length > 1 && slots[0] / SLOTS_PER_WORD != slots[slots.length - 1] / SLOTS_PER_WORD;
+        if (spanning) {
+            spanningCommitsStarted.incrementAndGet();
+        }
+        replaceAll(slots, slots.length, CLAIMING, target.ordinal());
+        if (spanning) {
+            spanningCommitsFinished.incrementAndGet();
+        }
+        for (SeatStateListener listener : listeners) {
+            listener.onTransition(slots, SeatStatus.AVAILABLE, target);
+        }
+        reportClaim(slots.length, retries, true);
+        return true;
+    }
+
+    private static void reportClaim(int seats, int retries, boolean claimed) {
+        SeatClaimObserver observer = claimObserver;
+        if (observer != null) {
+            observer.onClaim(seats, retries, claimed);
+        }
+    }
+
+    // Returns the number of retries, with CLAIM_FAILED set if the word could not be claimed.
+    private int claimWord(int index, long mask) {
+        int round = 0;
+        int lostCas = 0;
+        while (true) {
+            long word = words.get(index);
+            long held = word & mask;
+            if (held == 0L) {
+                // All requested slots in this word are AVAILABLE; mark them all CLAIMING (binary 11) at once.
+                if (words.compareAndSet(index, word, word | mask)) {
+                    return lostCas + round;
+                }
+                lostCas++;
+                continue;
+            }
+            // A slot with exactly one of its two bits set is BOOKED or RESERVED, which no amount of waiting fixes.
+            if (((held ^ (held >>> 1)) & LOW_BITS & mask) != 0L || ++round > MAX_BACKOFF_ROUNDS) {
+                return CLAIM_FAILED | (lostCas + Math.min(round, MAX_BACKOFF_ROUNDS));
+            }
+            backoff(round);
+        }
+    }
+
+    private static void backoff(int round) {
+        if (round < 4) {
+            for (int spins = 1 << round; spins > 0; spins--) {
+                Thread.onSpinWait();
+            }
+        } else {
+            Thread.yield();
+        }
+    }
+
+    // Rewrites slots[0, count) from one state to another; the caller owns those slots, so this cannot fail.
+    private void replaceAll(int[] slots, int count, int from, int to) {
+        int i = 0;
+        while (i < count) {
+            int index = slots[i] / SLOTS_PER_WORD;
+            long mask = 0L;
+            long fromBits = 0L;
+            long toBits = 0L;
+            for (; i < count && slots[i] / SLOTS_PER_WORD == index; i++) {
+                int shift = shift(slots[i]);
+                mask |= SLOT_MASK << shift;
+                fromBits |= (long) from << shift;
+                toBits |= (long) to << shift;
+            }
+            while (true) {
+                long word = words.get(index);
+                if ((word & mask) != fromBits) {
+                    throw new IllegalStateException("Claimed seats changed while held by their claim");
+                }
+                if (words.compareAndSet(index, word, (word & ~mask) | toBits)) {
+                    markChanged(index);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every slot whose bit is set in the {@code booked} bitmap BOOKED and every other slot AVAILABLE,
+     * a word at a time, when restoring a snapshot. The bitmap is read from its position without moving it.
+     * Only for a store that is not yet in use; listeners are told through {@link SeatStateListener#onRestore}
+     * rather than per transition.
+     */
+    public void restoreBooked(LongBuffer booked) {
+        int bitmapWords = booked.remaining();
+        int last = bitmapWords - 1;
+        while (last >= 0 && booked.get(booked.position() + last) == 0L) {
+            last--;
+        }
+        long length = last < 0 ? 0L : (long) last * Long.SIZE + Long.SIZE - Long.numberOfLeadingZeros(booked.get(booked.position() + last));
+        if (length > size) {
+            throw new IndexOutOfBoundsException("Snapshot has " + length + " seats but the concert has " + size);
+        }
+        for (int index = 0; index < words.length(); index++) {
+            // Each half of a bitmap word fills one state word: bit i becomes the low bit of slot i.
+            int half = index >>> 1;
+            long chunk = half < bitmapWords ? booked.get(booked.position() + half) : 0L;
+            int from = (index & 1) * SLOTS_PER_WORD;
+            words.set(index, spread((chunk >>> from) & 0xFFFF_FFFFL));
+            markChanged(index);
+        }
+        for (SeatStateListener listener : listeners) {
+            listener.onRestore();
+        }
+    }
+
+    // Moves bit i of a 32-bit value to bit 2i.
+    private static long spread(long bits) {
+        bits = (bits | (bits << 16)) & 0x0000_FFFF_0000_FFFFL;
+        bits = (bits | (bits << 8)) & 0x00FF_00FF_00FF_00FFL;
+        bits = (bits | (bits << 4)) & 0x0F0F_0F0F_0F0F_0F0FL;
+        bits = (bits | (bits << 2)) & 0x3333_3333_3333_3333L;
+        return (bits | (bits << 1)) & LOW_BITS;
+    }
+
+    int blockCount() {
+        return (words.length() + BLOCK_WORDS - 1) / BLOCK_WORDS;
+    }
+
+    /**
+     * Starts recording which blocks of words change, for {@link #copyBlocks}.
+     */
+    synchronized void trackChangedBlocks() {
+        if (changedBlocks == null) {
+            changedBlocks = new AtomicLongArray((blockCount() + 63) / 64);
+        }
+    }
+
+    // Called after the word's CAS, so whoever takes the mark then reads the new value.
+    private void markChanged(int index) {
+        AtomicLongArray changed = changedBlocks;
+        if (changed != null) {
+            int block = index / BLOCK_WORDS;
+            long bit = 1L << block;
+            while (true) {
+                long current = changed.get(block >>> 6);
+                if ((current & bit) != 0L || changed.compareAndSet(block >>> 6, current, current | bit)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the blocks changed since the last call to the {@code blocks} bitmap, or every block if
+     * {@code all}, and copies each block in the bitmap into {@code target} at the same offset, so that no
+     * claim is half committed in the copy: each claim is either wholly in it or not at all. Seats held by
+     * an in-flight claim are copied in the CLAIMING pattern. Returns {@code false}, having taken the
+     * changes but copied only part of them, if a claim spanning several words was committing while the
+     * words were read; call again with the same bitmap to retry. Needs {@link #trackChangedBlocks}.
+     */
+    boolean copyBlocks(long[] blocks, boolean all, long[] target) {
+        // Read finished before started: equal values mean no spanning commit was in flight at that moment.
+        long finished = spanningCommitsFinished.get();
+        long started = spanningCommitsStarted.get();
+        if (started != finished) {
+            return false;
+        }
+        // Take the marks only now: every spanning claim that has finished has marked all of its words.
+        AtomicLongArray changed = changedBlocks;
+        for (int i = 0; i < blocks.length; i++) {
+            if (all) {
+                changed.set(i, 0L);
+                blocks[i] = -1L;
+            } else if (changed.get(i) != 0L) {
+                blocks[i] |= changed.getAndSet(i, 0L);
+            }
+        }
+        int blockCount = blockCount();
+        for (int i = 0; i < blocks.length; i++) {
+            for (long bits = blocks[i]; bits != 0L; bits &= bits - 1) {
+                int block = (i << 6) + Long.numberOfTrailingZeros(bits);
+                if (block >= blockCount) {
+                    break;
+                }
+                int from = block * BLOCK_WORDS;
+                int to = Math.min(from + BLOCK_WORDS, words.length());
+                for (int index = from; index < to; index++) {
+                    target[index] = words.get(index);
+                }
+            }
+        }
+        return spanningCommitsStarted.get() == started;
+    }
+
+    boolean spanningCommitInFlight() {
+        return spanningCommitsStarted.get() != spanningCommitsFinished.get();
+    }
+
+    /**
+     * Counts the slots currently in the given status, a word at a time. Each word is read atomically but
+     * the words are not read at a single instant, so the result can be off by concurrent transitions.
+     */
+    public int count(SeatStatus status) {
+        int count = countPattern(status.ordinal());
+        if (status == SeatStatus.RESERVED) {
+            count += countPattern(CLAIMING);
+        }
+        return count;
+    }
+
+    private int countPattern(int bits) {
+        long pattern = LOW_BITS * bits;
+        int count = 0;
+        int lastWord = words.length() - 1;
+        for (int i = 0; i <= lastWord; i++) {
+            // XOR leaves a slot's two bits at 00 only where the slot matches the status.
+            long diff = words.get(i) ^ pattern;
+            long mismatched = (diff | (diff >>> 1)) & LOW_BITS;
+            if (i == lastWord) {
+                mismatched |= tailMask();
+            }
+            count += SLOTS_PER_WORD - Long.bitCount(mismatched);
+        }
+        return count;
+    }
+
+    // Marks the unused slots of the last word as mismatching so they are never counted.
+    private long tailMask() {
+        int used = size % SLOTS_PER_WORD;
+        if (used == 0) {
+            return 0L;
+        }
+        return LOW_BITS & (-1L << (used * BITS_PER_SLOT));
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of range for " + size + " seats");
+        }
+    }
+
+    private static int shift(int slot) {
+        return (slot % SLOTS_PER_WORD) * BITS_PER_SLOT;
+    }
+}
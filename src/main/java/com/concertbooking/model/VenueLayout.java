@@ -0,0 +1,115 @@
+package com.concertbooking.model;
+
+import java.util.List;
+
+/**
+ * Seat layout of a venue, built once and shared by every concert held there.
+ *
+ * <p>Seats are kept as columns of a slot-indexed array per field rather than as {@link Seat} objects,
+ * and seat ids are found through an open-addressed table of slots, so a layout costs a few arrays however
+ * many concerts use it. A concert made from a layout only adds its own seat states and price overrides;
+ * see {@link Concert#Concert(String, String, VenueLayout, java.time.LocalDateTime, java.util.Map)}.
+ */
+public final class VenueLayout {
+    private static final SeatType[] TYPES = SeatType.values();
+    // Type code of a seat without a type; SeatAvailability counts seats by the same codes.
+    static final byte UNTYPED = (byte) TYPES.length;
+
+    private final String venue;
+    private final String[] seatIds;
+    private final String[] seatNumbers;
+    private final byte[] seatTypes;
+    private final double[] basePrices;
+    // Linear probing: the seat id's hash in the high half and its slot + 1 in the low half, or 0 for an
+    // empty entry, so probing past other seats never has to read their ids.
+    private final long[] slotTable;
+    private final int shift;
+
+    /**
+     * Takes the id, number, type and price of each seat, in slot order. The seats are only read, so they
+     * can be dropped once the layout is built.
+     */
+    public VenueLayout(String venue, List<Seat> seats) {
+        int size = seats.size();
+        this.venue = venue;
+        this.seatIds = new String[size];
+        this.seatNumbers = new String[size];
+        this.seatTypes = new byte[size];
+        this.basePrices = new double[size];
+        int bits = Math.max(1, 33 - Integer.numberOfLeadingZeros(Math.max(1, size) - 1));
+        this.slotTable = new long[1 << bits];
+        this.shift = 32 - bits;
+        for (int slot = 0; slot < size; slot++) {
+            Seat seat = seats.get(slot);
+            if (seat.getId() == null) {
+                throw new IllegalArgumentException("Seat id is null");
+            }
+            if (slotOf(seat.getId()) >= 0) {
+                throw new IllegalArgumentException("Duplicate seat id " + seat.getId());
+            }
+            seatIds[slot] = seat.getId();
+            seatNumbers[slot] = seat.getSeatNumber();
+            seatTypes[slot] = seat.getSeatType() == null ? UNTYPED : (byte) seat.getSeatType().ordinal();
+            basePrices[slot] = seat.getSeatPrice();
+            int hash = seat.getId().hashCode();
+            int index = indexOf(hash);
+            while (slotTable[index] != 0L) {
+                index = (index + 1) & (slotTable.length - 1);
+            }
+            slotTable[index] = (long) hash << 32 | (slot + 1);
+        }
+    }
+
+    public String getVenue() {
+        return venue;
+    }
+
+    public int size() {
+        return seatIds.length;
+    }
+
+    public String getSeatId(int slot) {
+        return seatIds[slot];
+    }
+
+    public String getSeatNumber(int slot) {
+        return seatNumbers[slot];
+    }
+
+    public SeatType getSeatType(int slot) {
+        byte type = seatTypes[slot];
+        return type == UNTYPED ? null : TYPES[type];
+    }
+
+    public double getBasePrice(int slot) {
+        return basePrices[slot];
+    }
+
+    /**
+     * Slot of the seat with the given id, or -1 if the layout has no such seat.
+     */
+    public int slotOf(String seatId) {
+        int hash = seatId.hashCode();
+        for (int index = indexOf(hash); ; index = (index + 1) & (slotTable.length - 1)) {
+            long entry = slotTable[index];
+            if (entry == 0L) {
+                return -1;
+            }
+            int slot = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && seatIds[slot].equals(seatId)) {
+                return slot;
+            }
+        }
+    }
+
+    // Shared, not copied: concerts count availability straight from the layout's column.
+    byte[] typeCodes() {
+        return seatTypes;
+    }
+
+    // Fibonacci hashing: seat ids like "A-101", "A-102" have neighbouring hash codes, which would
+    // otherwise land in one long probe run.
+    private int indexOf(int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+}
@@ -4,15 +4,58 @@ import com.concertbooking.model.Booking;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository {
     void addBooking(Booking booking);
 
+    /**
+     * {@link #addBooking} for several bookings at once, recorded together where the repository can. If it
+     * throws, none of them has been added.
+     */
+    void addBookings(List<Booking> bookings);
+
+    /**
+     * Records a status change (confirm or cancel) of a booking already in the repository.
+     */
+    void updateBooking(Booking booking);
+
+    /**
+     * {@link #updateBooking} for several bookings at once, recorded together where the repository can.
+     */
+    void updateBookings(List<Booking> bookings);
+
     Optional<Booking> findById(String id);
 
     List<Booking> findAll();
 
+    /**
+     * Every booking by concert id, then by booking id, read straight from the repository without copying
+     * it first.
+     */
+    Stream<Booking> streamAll();
+
+    /**
+     * Up to {@code limit} bookings in {@link #streamAll} order, starting after {@code cursor}; {@code null}
+     * for the first page.
+     */
+    Page<Booking> findPage(String cursor, int limit);
+
     List<Booking> findByUserId(String userId);
 
+    /**
+     * A user's bookings by booking id, which for numeric ids is the order they were made in.
+     */
+    Stream<Booking> streamByUserId(String userId);
+
+    /**
+     * Up to {@code limit} of a user's bookings in {@link #streamByUserId} order, starting after
+     * {@code cursor}, which is {@code null} for the first page or else made by
+     * {@link Cursors#afterBooking}.
+     */
+    Page<Booking> findPageByUserId(String userId, String cursor, int limit);
+
+    List<Booking> findByConcertId(String concertId);
+
     void deleteBooking(String id);
 }
@@ -1,9 +1,11 @@
 package com.concertbooking.repository;
 
 import com.concertbooking.model.Concert;
+import com.concertbooking.model.VenueLayout;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ConcertRepository {
     void addConcert(Concert concert);
@@ -12,7 +14,29 @@ public interface ConcertRepository {
 
     List<Concert> findAll();
 
+    /**
+     * Every concert by date, read straight from the repository without copying it first.
+     */
+    Stream<Concert> streamAll();
+
+    /**
+     * Up to {@code limit} concerts by date, starting after {@code cursor}; {@code null} for the first page.
+     */
+    Page<Concert> findPage(String cursor, int limit);
+
     List<Concert> searchByArtist(String artist);
 
     List<Concert> searchByVenue(String venue);
+
+    List<Concert> searchByArtistPrefix(String query, int limit);
+
+    List<Concert> searchByVenuePrefix(String query, int limit);
+
+    /**
+     * Registers a venue's layout so that concerts restored from a snapshot can share it. Adding a concert
+     * built from a layout registers that layout too, unless its venue already has one.
+     */
+    void addVenueLayout(VenueLayout layout);
+
+    Optional<VenueLayout> findVenueLayout(String venue);
 }
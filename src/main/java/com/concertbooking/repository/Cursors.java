@@ -0,0 +1,66 @@
+package com.concertbooking.repository;
+
+import com.concertbooking.model.Booking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+/**
+ * Page cursors: the sort key of the last item on a page, as URL-safe base64. Clients treat them as
+ * opaque; repositories, and the system when it merges their pages, make and read them here.
+ */
+public final class Cursors {
+    private static final int VERSION = 1;
+
+    private Cursors() {
+    }
+
+    /**
+     * Cursor for the page after {@code booking} in booking id order.
+     */
+    public static String afterBooking(Booking booking) {
+        return encode(booking.getId());
+    }
+
+    public static String encode(String... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(parts.length);
+            for (String part : parts) {
+                out.writeUTF(part);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * The parts of a cursor made by {@link #encode} from {@code count} parts.
+     *
+     * @throws IllegalArgumentException if it was not
+     */
+    public static String[] decode(String cursor, int count) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readUnsignedByte() != VERSION || in.readUnsignedByte() != count) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String[] parts = new String[count];
+            for (int i = 0; i < count; i++) {
+                parts[i] = in.readUTF();
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
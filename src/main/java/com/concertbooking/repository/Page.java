@@ -0,0 +1,53 @@
+package com.concertbooking.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a paginated query, with the cursor that fetches the next page.
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Takes up to {@code limit} items from an ordered iterator. The page has a next cursor, made from its
+     * last item, only if the iterator had more.
+     */
+    public static <T> Page<T> of(Iterator<? extends T> items, int limit, Function<? super T, String> cursorOf) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<T> page = new ArrayList<>(Math.min(limit, 64));
+        while (items.hasNext()) {
+            T item = items.next();
+            if (page.size() == limit) {
+                return new Page<>(page, cursorOf.apply(page.get(limit - 1)));
+            }
+            page.add(item);
+        }
+        return new Page<>(page, null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Opaque cursor to pass back for the next page, or {@code null} if this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -1,13 +1,44 @@
 package com.concertbooking.repository.impl;
 
+import com.concertbooking.concurrent.LongObjectMap;
+import com.concertbooking.id.CompactIds;
 import com.concertbooking.model.Booking;
 import com.concertbooking.repository.BookingRepository;
+import com.concertbooking.repository.Cursors;
+import com.concertbooking.repository.Page;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class BookingRepositoryImpl implements BookingRepository {
-    private final Map<String, Booking> bookings = new HashMap<>();
+    // Numeric ids in the order they were issued, then older text ids.
+    private static final Comparator<Booking> BY_ID = (a, b) -> {
+        long x = a.getNumericId();
+        long y = b.getNumericId();
+        if (x != Booking.NO_NUMERIC_ID && y != Booking.NO_NUMERIC_ID) {
+            return Long.compare(x, y);
+        }
+        if (x != y) {
+            return x == Booking.NO_NUMERIC_ID ? 1 : -1;
+        }
+        return a.getId().compareTo(b.getId());
+    };
+
+    // Keyed by the numeric id; text ids are parsed on the way in and only exist at the API edge.
+    private final LongObjectMap<Booking> bookings = new LongObjectMap<>();
+    // Bookings restored with an older, non-numeric id.
+    private final ConcurrentMap<String, Booking> textIdBookings = new ConcurrentHashMap<>();
+    // Secondary indexes are only changed while holding the primary entry's lock (inside compute),
+    // so an add and a delete of the same booking can never interleave their index updates. Both hold
+    // their bookings in id order, and the concert index is sorted by concert id, so streams and pages can
+    // read them in a stable order without copying.
+    private final ConcurrentMap<String, NavigableSet<Booking>> bookingsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, NavigableSet<Booking>> bookingsByConcert = new ConcurrentSkipListMap<>();
 
     @Override
     public void addBooking(Booking booking) {
@@ -15,11 +46,52 @@ public class BookingRepositoryImpl implements BookingRepository {
             throw new IllegalArgumentException("Booking is null");
         }
 
-        if(bookings.containsKey(booking.getId())){
-            throw new IllegalArgumentException("Booking already exists");
+        UnaryOperator<Booking> add = existing -> {
+            if(existing != null){
+                throw new IllegalArgumentException("Booking already exists");
+            }
+            addToIndex(bookingsByUser, booking.getUser().getId(), booking);
+            bookingsByConcert.computeIfAbsent(booking.getConcert().getId(), BookingRepositoryImpl::newIndexSet).add(booking);
+            return booking;
+        };
+        if(booking.getNumericId() != Booking.NO_NUMERIC_ID){
+            bookings.compute(booking.getNumericId(), add);
+        } else {
+            textIdBookings.compute(booking.getId(), (id, existing) -> add.apply(existing));
+        }
+    }
+
+    @Override
+    public void addBookings(List<Booking> bookings) {
+        for (int i = 0; i < bookings.size(); i++) {
+            try {
+                addBooking(bookings.get(i));
+            } catch (RuntimeException e) {
+                for (int added = 0; added < i; added++) {
+                    deleteBooking(bookings.get(added).getId());
+                }
+                throw e;
+            }
         }
+    }
 
-        bookings.put(booking.getId(), booking);
+    @Override
+    public void updateBooking(Booking booking) {
+        if(booking == null){
+            throw new IllegalArgumentException("Booking is null");
+        }
+        // Bookings are held by reference, so the change is already visible; just check it is one of ours.
+        // A numeric id is looked up as is, without rendering it to text and parsing it back.
+        long numericId = booking.getNumericId();
+        Booking existing = numericId != Booking.NO_NUMERIC_ID ? bookings.get(numericId) : textIdBookings.get(booking.getId());
+        if(existing != booking){
+            throw new IllegalArgumentException("Booking does not exist");
+        }
+    }
+
+    @Override
+    public void updateBookings(List<Booking> bookings) {
+        bookings.forEach(this::updateBooking);
     }
 
     @Override
@@ -27,25 +99,86 @@ public class BookingRepositoryImpl implements BookingRepository {
         if(id == null || id.isEmpty()){
             throw new IllegalArgumentException("Booking id is null or empty");
         }
-        if(!bookings.containsKey(id)){
-            return Optional.empty();
-        }
-        return Optional.ofNullable(bookings.get(id));
+        return Optional.ofNullable(lookup(id));
     }
 
     @Override
     public List<Booking> findAll(){
-        return new ArrayList<>(bookings.values());
+        List<Booking> all = bookings.values();
+        all.addAll(textIdBookings.values());
+        return all;
+    }
+
+    @Override
+    public Stream<Booking> streamAll() {
+        return bookingsByConcert.values().stream().flatMap(Set::stream);
+    }
+
+    @Override
+    public Page<Booking> findPage(String cursor, int limit) {
+        String[] after = cursor == null ? null : Cursors.decode(cursor, 2);
+        Iterator<Map.Entry<String, NavigableSet<Booking>>> concerts = after == null
+                ? bookingsByConcert.entrySet().iterator()
+                : bookingsByConcert.tailMap(after[0], true).entrySet().iterator();
+        // Walks the index in place; iterator() on a flatMap stream would buffer a concert at a time.
+        Iterator<Booking> rest = new Iterator<>() {
+            private Iterator<Booking> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && concerts.hasNext()) {
+                    Map.Entry<String, NavigableSet<Booking>> entry = concerts.next();
+                    current = after != null && entry.getKey().equals(after[0])
+                            ? entry.getValue().tailSet(probe(after[1]), false).iterator()
+                            : entry.getValue().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Booking next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return Page.of(rest, limit, booking -> Cursors.encode(booking.getConcert().getId(), booking.getId()));
     }
 
     @Override
     public List<Booking> findByUserId(String userId) {
         if(userId == null || userId.isEmpty()){
-            throw new IllegalArgumentException("Booking id is null or empty");
+            throw new IllegalArgumentException("User id is null or empty");
         }
-        return bookings.values().stream()
-                .filter(b -> b.getUser().getId().equals(userId))
-                .collect(Collectors.toList());
+        return snapshot(bookingsByUser.get(userId));
+    }
+
+    @Override
+    public Stream<Booking> streamByUserId(String userId) {
+        if(userId == null || userId.isEmpty()){
+            throw new IllegalArgumentException("User id is null or empty");
+        }
+        NavigableSet<Booking> forUser = bookingsByUser.get(userId);
+        return forUser == null ? Stream.empty() : forUser.stream();
+    }
+
+    @Override
+    public Page<Booking> findPageByUserId(String userId, String cursor, int limit) {
+        if(userId == null || userId.isEmpty()){
+            throw new IllegalArgumentException("User id is null or empty");
+        }
+        NavigableSet<Booking> forUser = bookingsByUser.getOrDefault(userId, Collections.emptyNavigableSet());
+        NavigableSet<Booking> rest = cursor == null ? forUser : forUser.tailSet(probe(Cursors.decode(cursor, 1)[0]), false);
+        return Page.of(rest.iterator(), limit, Cursors::afterBooking);
+    }
+
+    @Override
+    public List<Booking> findByConcertId(String concertId) {
+        if(concertId == null || concertId.isEmpty()){
+            throw new IllegalArgumentException("Concert id is null or empty");
+        }
+        return snapshot(bookingsByConcert.get(concertId));
     }
 
     @Override
@@ -54,10 +187,55 @@ public class BookingRepositoryImpl implements BookingRepository {
             throw new IllegalArgumentException("Booking id is null or empty");
         }
 
-        if(!bookings.containsKey(id)){
-            throw new IllegalArgumentException("Booking does not exist");
+        UnaryOperator<Booking> delete = existing -> {
+            if(existing == null){
+                throw new IllegalArgumentException("Booking does not exist");
+            }
+            removeFromIndex(bookingsByUser, existing.getUser().getId(), existing);
+            // A skip list's compute may run more than once, so a set emptied here could be dropped just as
+            // another booking goes into it. Concerts are few and never removed: keep their sets.
+            NavigableSet<Booking> forConcert = bookingsByConcert.get(existing.getConcert().getId());
+            if(forConcert != null){
+                forConcert.remove(existing);
+            }
+            return null;
+        };
+        if(CompactIds.isCompact(id)){
+            bookings.compute(CompactIds.parse(id), delete);
+        } else {
+            textIdBookings.compute(id, (key, existing) -> delete.apply(existing));
         }
+    }
+
+    private Booking lookup(String id) {
+        return CompactIds.isCompact(id) ? bookings.get(CompactIds.parse(id)) : textIdBookings.get(id);
+    }
+
+    private static void addToIndex(ConcurrentMap<String, NavigableSet<Booking>> index, String key, Booking booking) {
+        index.compute(key, (k, set) -> {
+            NavigableSet<Booking> result = set != null ? set : newIndexSet(k);
+            result.add(booking);
+            return result;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentMap<String, NavigableSet<Booking>> index, String key, Booking booking) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(booking);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static List<Booking> snapshot(Set<Booking> set) {
+        return set == null ? new ArrayList<>() : new ArrayList<>(set);
+    }
+
+    private static NavigableSet<Booking> newIndexSet(String key) {
+        return new ConcurrentSkipListSet<>(BY_ID);
+    }
 
-        bookings.remove(id);
+    // Sorts exactly where the booking with this id does; only its id is ever read.
+    private static Booking probe(String id) {
+        return new Booking(id, null, null, List.of(), 0.0);
     }
 }
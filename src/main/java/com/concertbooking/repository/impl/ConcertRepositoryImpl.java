@@ -1,14 +1,27 @@
 package com.concertbooking.repository.impl;
 
 import com.concertbooking.model.Concert;
+import com.concertbooking.model.VenueLayout;
 import com.concertbooking.repository.ConcertRepository;
+import com.concertbooking.repository.Cursors;
+import com.concertbooking.repository.Page;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 public class ConcertRepositoryImpl implements ConcertRepository {
 
-    private final Map<String, Concert> concerts = new HashMap<String, Concert>();
+    private final ConcurrentMap<String, Concert> concerts = new ConcurrentHashMap<>();
+    // Date order for streams and pages; a cursor is the date and id of the last concert on a page.
+    private final NavigableSet<Concert> byDate = new ConcurrentSkipListSet<>(ConcertSearchIndex.BY_DATE_TIME);
+    private final ConcertSearchIndex artistIndex = new ConcertSearchIndex(Concert::getArtistName);
+    private final ConcertSearchIndex venueIndex = new ConcertSearchIndex(Concert::getVenue);
+    private final ConcurrentMap<String, VenueLayout> layouts = new ConcurrentHashMap<>();
 
     @Override
     public void addConcert(Concert concert){
@@ -16,11 +29,29 @@ public class ConcertRepositoryImpl implements ConcertRepository {
             throw new NullPointerException("Concert is null");
         }
 
-        if(concerts.containsKey(concert.getId())){
+        if(concerts.putIfAbsent(concert.getId(), concert) != null){
             throw new IllegalArgumentException("Concert already exists");
         }
+        byDate.add(concert);
+        artistIndex.add(concert);
+        venueIndex.add(concert);
+        VenueLayout layout = concert.getVenueLayout();
+        if(layout != null && layout.getVenue() != null){
+            layouts.putIfAbsent(layout.getVenue(), layout);
+        }
+    }
+
+    @Override
+    public void addVenueLayout(VenueLayout layout){
+        if(layout == null || layout.getVenue() == null){
+            throw new IllegalArgumentException("Venue layout or its venue is null");
+        }
+        layouts.put(layout.getVenue(), layout);
+    }
 
-        concerts.put(concert.getId(), concert);
+    @Override
+    public Optional<VenueLayout> findVenueLayout(String venue){
+        return venue == null ? Optional.empty() : Optional.ofNullable(layouts.get(venue));
     }
 
     @Override
@@ -28,10 +59,11 @@ public class ConcertRepositoryImpl implements ConcertRepository {
         if(id == null || id.isEmpty()){
             throw new NullPointerException("id is null or empty");
         }
-        if(!concerts.containsKey(id)){
+        Concert concert = concerts.get(id);
+        if(concert == null){
             throw new IllegalArgumentException("Concert does not exist");
         }
-        return Optional.ofNullable(concerts.get(id));
+        return Optional.of(concert);
     }
 
     @Override
@@ -39,17 +71,45 @@ public class ConcertRepositoryImpl implements ConcertRepository {
         return new ArrayList<Concert> (concerts.values());
     }
 
+    @Override
+    public Stream<Concert> streamAll(){
+        return byDate.stream();
+    }
+
+    @Override
+    public Page<Concert> findPage(String cursor, int limit){
+        NavigableSet<Concert> rest = cursor == null ? byDate : byDate.tailSet(probe(cursor), false);
+        return Page.of(rest.iterator(), limit,
+                concert -> Cursors.encode(concert.getDateTime().toString(), concert.getId()));
+    }
+
     @Override
     public List<Concert> searchByArtist(String artist){
-        return concerts.values().stream()
-                .filter((concert)-> concert.getArtistName().equals(artist))
-                .collect(Collectors.toList());
+        return artistIndex.findByValue(artist);
     }
 
     @Override
     public List<Concert> searchByVenue(String venue){
-        return concerts.values().stream()
-                .filter((concert) -> concert.getVenue().equals(venue))
-                .collect(Collectors.toList());
+        return venueIndex.findByValue(venue);
+    }
+
+    @Override
+    public List<Concert> searchByArtistPrefix(String query, int limit){
+        return artistIndex.search(query, limit);
+    }
+
+    @Override
+    public List<Concert> searchByVenuePrefix(String query, int limit){
+        return venueIndex.search(query, limit);
+    }
+
+    // Sorts exactly where the cursor's concert does; only its date and id are ever read.
+    private static Concert probe(String cursor){
+        String[] parts = Cursors.decode(cursor, 2);
+        try {
+            return new Concert(parts[1], null, null, LocalDateTime.parse(parts[0]), List.of());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 }
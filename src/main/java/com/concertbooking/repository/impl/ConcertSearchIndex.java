@@ -0,0 +1,222 @@
+package com.concertbooking.repository.impl;
+
+import com.concertbooking.model.Concert;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index over one text field of a concert (artist or venue).
+ *
+ * <p>Values are normalized (accents stripped, lower-cased, punctuation folded to spaces) and split into
+ * terms. Every posting set is ordered by concert date, so results come back in {@code dateTime} order
+ * without a sort in the common single-set case. Concerts are indexed incrementally as they are added.
+ */
+public final class ConcertSearchIndex {
+    static final Comparator<Concert> BY_DATE_TIME = Comparator.comparing(Concert::getDateTime)
+            .thenComparing(Concert::getId);
+
+    private final Function<Concert, String> field;
+    private final ConcurrentMap<String, NavigableSet<Concert>> byValue = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, NavigableSet<Concert>> byTerm = new ConcurrentSkipListMap<>();
+    // Forward index for filtering candidates: a hash probe is far cheaper than a skip-list contains().
+    private final ConcurrentMap<Concert, String[]> termsByConcert = new ConcurrentHashMap<>();
+
+    public ConcertSearchIndex(Function<Concert, String> field) {
+        this.field = field;
+    }
+
+    public void add(Concert concert) {
+        String value = normalize(field.apply(concert));
+        if (value.isEmpty()) {
+            return;
+        }
+        String[] terms = value.split(" ");
+        termsByConcert.put(concert, terms);
+        postings(byValue, value).add(concert);
+        for (String term : terms) {
+            postings(byTerm, term).add(concert);
+        }
+    }
+
+    /**
+     * Concerts whose whole field value matches {@code value}, ignoring case, accents and punctuation.
+     */
+    public List<Concert> findByValue(String value) {
+        NavigableSet<Concert> concerts = byValue.get(normalize(value));
+        return concerts == null ? new ArrayList<>() : new ArrayList<>(concerts);
+    }
+
+    /**
+     * Type-ahead lookup: every term of {@code query} must match a term of the field exactly, except the
+     * last one, which only has to be a prefix of one. Returns at most {@code limit} concerts by date.
+     */
+    public List<Concert> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String[] terms = normalized.split(" ");
+        String prefix = terms[terms.length - 1];
+
+        if (terms.length == 1) {
+            NavigableMap<String, NavigableSet<Concert>> prefixRange =
+                    byTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            return firstMatches(() -> new MergingIterator(prefixRange.values()), concert -> true, limit);
+        }
+
+        // Drive the lookup from the smallest exact-term posting set and check the rest per candidate.
+        NavigableSet<Concert> driver = null;
+        for (int i = 0; i < terms.length - 1; i++) {
+            NavigableSet<Concert> postings = byTerm.get(terms[i]);
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            if (driver == null || postings.size() < driver.size()) {
+                driver = postings;
+            }
+        }
+        return firstMatches(driver, concert -> matches(termsByConcert.get(concert), terms), limit);
+    }
+
+    private static List<Concert> firstMatches(Iterable<Concert> candidates, Predicate<Concert> filter, int limit) {
+        List<Concert> result = new ArrayList<>(Math.min(limit, 64));
+        for (Concert concert : candidates) {
+            if (filter.test(concert)) {
+                result.add(concert);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(String[] concertTerms, String[] queryTerms) {
+        List<String> terms = Arrays.asList(concertTerms);
+        for (int i = 0; i < queryTerms.length - 1; i++) {
+            if (!terms.contains(queryTerms[i])) {
+                return false;
+            }
+        }
+        String prefix = queryTerms[queryTerms.length - 1];
+        for (String term : concertTerms) {
+            if (term.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static NavigableSet<Concert> postings(ConcurrentMap<String, NavigableSet<Concert>> index, String key) {
+        return index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_DATE_TIME));
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = isAscii(value) ? value : Normalizer.normalize(value, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lazily merges date-ordered posting sets, dropping concerts that appear under several terms, so a
+     * limited prefix query only walks as far as the results it returns.
+     */
+    private static final class MergingIterator implements Iterator<Concert> {
+        private final PriorityQueue<PeekingIterator> heads =
+                new PriorityQueue<>((a, b) -> BY_DATE_TIME.compare(a.peek, b.peek));
+        private Concert last;
+
+        MergingIterator(Collection<NavigableSet<Concert>> postings) {
+            for (NavigableSet<Concert> set : postings) {
+                PeekingIterator head = new PeekingIterator(set.iterator());
+                if (head.peek != null) {
+                    heads.add(head);
+                }
+            }
+            skipDuplicates();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Concert next() {
+            PeekingIterator head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            last = head.advance();
+            if (head.peek != null) {
+                heads.add(head);
+            }
+            skipDuplicates();
+            return last;
+        }
+
+        private void skipDuplicates() {
+            while (last != null && !heads.isEmpty() && heads.peek().peek.equals(last)) {
+                PeekingIterator head = heads.poll();
+                head.advance();
+                if (head.peek != null) {
+                    heads.add(head);
+                }
+            }
+        }
+    }
+
+    private static final class PeekingIterator {
+        private final Iterator<Concert> iterator;
+        private Concert peek;
+
+        PeekingIterator(Iterator<Concert> iterator) {
+            this.iterator = iterator;
+            this.peek = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        Concert advance() {
+            Concert current = peek;
+            peek = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.concertbooking.repository.impl;
+
+import com.concertbooking.journal.BookingEvents;
+import com.concertbooking.journal.BookingJournal;
+import com.concertbooking.journal.JournalRecord;
+import com.concertbooking.journal.Snapshot;
+import com.concertbooking.journal.SnapshotStore;
+import com.concertbooking.journal.StoredBooking;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatStatus;
+import com.concertbooking.model.User;
+import com.concertbooking.repository.BookingRepository;
+import com.concertbooking.repository.ConcertRepository;
+import com.concertbooking.repository.Page;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Durable {@link BookingRepository}: every change is appended to a {@link BookingJournal} before the call
+ * returns, and {@link #recover} rebuilds bookings and seat states after a restart from the latest
+ * snapshot, if any, and the journal after it.
+ *
+ * <p>Reads go straight to the wrapped repository. Concerts are not journaled, so they must be added to
+ * the concert repository again before recovering.
+ */
+public class JournaledBookingRepository implements BookingRepository, AutoCloseable {
+    private final BookingRepository delegate;
+    private final BookingJournal journal;
+
+    public JournaledBookingRepository(BookingRepository delegate, BookingJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    public BookingJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void addBooking(Booking booking) {
+        // The delegate rejects duplicates before anything is logged.
+        delegate.addBooking(booking);
+        List<JournalRecord> records = new ArrayList<>(2);
+        addRecords(booking, records);
+        try {
+            journal.append(records);
+        } catch (RuntimeException e) {
+            delegate.deleteBooking(booking.getId());
+            throw e;
+        }
+    }
+
+    // One append for the lot, as in updateBookings.
+    @Override
+    public void addBookings(List<Booking> bookings) {
+        delegate.addBookings(bookings);
+        List<JournalRecord> records = new ArrayList<>(2 * bookings.size());
+        for (Booking booking : bookings) {
+            addRecords(booking, records);
+        }
+        try {
+            journal.append(records);
+        } catch (RuntimeException e) {
+            for (Booking booking : bookings) {
+                delegate.deleteBooking(booking.getId());
+            }
+            throw e;
+        }
+    }
+
+    private static void addRecords(Booking booking, List<JournalRecord> records) {
+        records.add(BookingEvents.booked(booking));
+        BookingStatus status = booking.getStatus();
+        if (status != BookingStatus.PENDING) {
+            records.add(BookingEvents.statusChanged(booking.getId(), status));
+        }
+    }
+
+    @Override
+    public void updateBooking(Booking booking) {
+        delegate.updateBooking(booking);
+        BookingStatus status = booking.getStatus();
+        if (status != BookingStatus.PENDING) {
+            journal.append(BookingEvents.statusChanged(booking.getId(), status));
+        }
+    }
+
+    // One append for the lot: a single durable write instead of one per booking.
+    @Override
+    public void updateBookings(List<Booking> bookings) {
+        delegate.updateBookings(bookings);
+        List<JournalRecord> records = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            BookingStatus status = booking.getStatus();
+            if (status != BookingStatus.PENDING) {
+                records.add(BookingEvents.statusChanged(booking.getId(), status));
+            }
+        }
+        if (!records.isEmpty()) {
+            journal.append(records);
+        }
+    }
+
+    @Override
+    public Optional<Booking> findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Booking> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Booking> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Page<Booking> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    @Override
+    public List<Booking> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public Stream<Booking> streamByUserId(String userId) {
+        return delegate.streamByUserId(userId);
+    }
+
+    @Override
+    public Page<Booking> findPageByUserId(String userId, String cursor, int limit) {
+        return delegate.findPageByUserId(userId, cursor, limit);
+    }
+
+    @Override
+    public List<Booking> findByConcertId(String concertId) {
+        return delegate.findByConcertId(concertId);
+    }
+
+    @Override
+    public void deleteBooking(String id) {
+        delegate.deleteBooking(id);
+        journal.append(BookingEvents.deleted(id));
+    }
+
+    /**
+     * Replays the whole journal into the wrapped repository and marks the seats of every live booking
+     * BOOKED. Call once at startup, after the concerts are back and before taking new bookings. Returns the
+     * number of bookings restored.
+     */
+    public int recover(ConcertRepository concertRepository) {
+        return recover(concertRepository, null);
+    }
+
+    /**
+     * Like {@link #recover(ConcertRepository)}, but starts from the latest snapshot in {@code snapshots}
+     * and only replays the journal after it. Concerts in the snapshot that are not in the concert
+     * repository are added to it, sharing their venue's layout if one is registered there.
+     */
+    public int recover(ConcertRepository concertRepository, SnapshotStore snapshots) {
+        Map<String, Concert> concerts = new HashMap<>();
+        for (Concert concert : concertRepository.findAll()) {
+            concerts.put(concert.getId(), concert);
+        }
+        long fromLsn = 1L;
+        Optional<Snapshot> snapshot = snapshots == null ? Optional.empty() : snapshots.readLatest();
+        if (snapshot.isPresent()) {
+            for (Snapshot.ConcertImage image : snapshot.get().getConcerts()) {
+                Concert concert = concerts.get(image.getId());
+                if (concert == null) {
+                    concert = image.toConcert(concertRepository.findVenueLayout(image.getVenue()).orElse(null));
+                    concertRepository.addConcert(concert);
+                    concerts.put(concert.getId(), concert);
+                } else {
+                    image.restoreInto(concert);
+                }
+            }
+            // Seat states came back with the concerts, so these bookings claim nothing.
+            for (StoredBooking stored : snapshot.get().getBookings()) {
+                Booking booking = toBooking(stored, concerts);
+                if (stored.getStatus() == BookingStatus.CONFIRM) {
+                    booking.confirm();
+                } else if (stored.getStatus() == BookingStatus.CANCELLED) {
+                    booking.cancel();
+                }
+                delegate.addBooking(booking);
+            }
+            fromLsn = snapshot.get().getLsn() + 1;
+        }
+        journal.replay(fromLsn, record -> apply(record, concerts));
+        return (int) delegate.streamAll().count();
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private void apply(JournalRecord record, Map<String, Concert> concerts) {
+        switch (record.getType()) {
+            case BookingEvents.BOOKED: {
+                Booking booking = toBooking(BookingEvents.decodeBooked(record), concerts);
+                if (!booking.getConcert().claimSeats(booking.getSeats(), SeatStatus.BOOKED)) {
+                    throw new IllegalStateException("Booking " + booking.getId() + " overlaps a seat that is already booked");
+                }
+                delegate.addBooking(booking);
+                break;
+            }
+            case BookingEvents.CONFIRMED: existing(record).confirm(); break;
+            case BookingEvents.CANCELLED: {
+                Booking booking = existing(record);
+                if (booking.cancel()) {
+                    booking.getSeats().forEach(Seat::release);
+                }
+                break;
+            }
+            case BookingEvents.DELETED: {
+                // Snapshots leave out cancelled bookings, so one deleted after the snapshot may be gone already.
+                Booking booking = delegate.findById(BookingEvents.bookingId(record)).orElse(null);
+                if (booking == null) {
+                    break;
+                }
+                if (booking.getStatus() != BookingStatus.CANCELLED) {
+                    booking.getSeats().forEach(Seat::release);
+                }
+                delegate.deleteBooking(booking.getId());
+                break;
+            }
+            default: throw new IllegalStateException("Unknown journal record type " + record.getType() + " at " + record.getLsn());
+        }
+    }
+
+    private Booking existing(JournalRecord record) {
+        String bookingId = BookingEvents.bookingId(record);
+        return delegate.findById(bookingId).orElseThrow(() -> new IllegalStateException(
+                "Journal record " + record.getLsn() + " refers to unknown booking " + bookingId));
+    }
+
+    private static Booking toBooking(StoredBooking stored, Map<String, Concert> concerts) {
+        Concert concert = concerts.get(stored.getConcertId());
+        if (concert == null) {
+            throw new IllegalStateException("Concert " + stored.getConcertId() + " is missing");
+        }
+        List<Seat> seats = new ArrayList<>(stored.getSeatIds().size());
+        for (String seatId : stored.getSeatIds()) {
+            Seat seat = concert.getSeat(seatId);
+            if (seat == null) {
+                throw new IllegalStateException("Seat " + seatId + " of booking " + stored.getId() + " is missing");
+            }
+            seats.add(seat);
+        }
+        User user = new User(stored.getUserId(), stored.getUserName(), stored.getEmail());
+        return new Booking(stored.getId(), user, concert, seats, stored.getTotalPrice());
+    }
+}
@@ -0,0 +1,93 @@
+package com.concertbooking.repository.impl;
+
+import com.concertbooking.model.Booking;
+import com.concertbooking.repository.BookingRepository;
+import com.concertbooking.repository.Page;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link BookingRepository} that tells a listener about every booking added or updated, once the wrapped
+ * repository has accepted it. Deletes, which only undo an add that failed part way, are not reported.
+ */
+public class NotifyingBookingRepository implements BookingRepository {
+    private final BookingRepository delegate;
+    private final Consumer<Booking> listener;
+
+    public NotifyingBookingRepository(BookingRepository delegate, Consumer<Booking> listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public void addBooking(Booking booking) {
+        delegate.addBooking(booking);
+        listener.accept(booking);
+    }
+
+    @Override
+    public void addBookings(List<Booking> bookings) {
+        delegate.addBookings(bookings);
+        bookings.forEach(listener);
+    }
+
+    @Override
+    public void updateBooking(Booking booking) {
+        delegate.updateBooking(booking);
+        listener.accept(booking);
+    }
+
+    @Override
+    public void updateBookings(List<Booking> bookings) {
+        delegate.updateBookings(bookings);
+        bookings.forEach(listener);
+    }
+
+    @Override
+    public Optional<Booking> findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Booking> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Booking> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Page<Booking> findPage(String cursor, int limit) {
+        return delegate.findPage(cursor, limit);
+    }
+
+    @Override
+    public List<Booking> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public Stream<Booking> streamByUserId(String userId) {
+        return delegate.streamByUserId(userId);
+    }
+
+    @Override
+    public Page<Booking> findPageByUserId(String userId, String cursor, int limit) {
+        return delegate.findPageByUserId(userId, cursor, limit);
+    }
+
+    @Override
+    public List<Booking> findByConcertId(String concertId) {
+        return delegate.findByConcertId(concertId);
+    }
+
+    @Override
+    public void deleteBooking(String id) {
+        delegate.deleteBooking(id);
+    }
+}
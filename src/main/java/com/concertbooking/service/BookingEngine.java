@@ -0,0 +1,16 @@
+package com.concertbooking.service;
+
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.User;
+
+import java.util.List;
+
+/**
+ * The write path behind {@code ConcertTicketBookingSystem}: books and cancels seats named by id.
+ */
+public interface BookingEngine {
+    Booking bookSeats(String userId, String concertId, List<String> seatIds, User user) throws SeatNotAvailableException;
+
+    boolean cancelBooking(String bookingId);
+}
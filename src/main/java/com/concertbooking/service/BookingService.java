@@ -1,51 +1,368 @@
 package com.concertbooking.service;
 
+import com.concertbooking.concurrent.HashedWheelTimer;
 import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.id.CompactIds;
+import com.concertbooking.id.IdGenerator;
+import com.concertbooking.id.TimeOrderedIdGenerator;
+import com.concertbooking.metrics.BookingMetrics;
+import com.concertbooking.metrics.BookingMetrics.Operation;
+import com.concertbooking.metrics.BookingMetrics.Outcome;
 import com.concertbooking.model.Booking;
 import com.concertbooking.model.Concert;
+import com.concertbooking.model.ConcertCancellation;
+import com.concertbooking.model.HoldStatus;
 import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatHold;
+import com.concertbooking.model.SeatStatus;
+import com.concertbooking.model.SeatType;
 import com.concertbooking.model.User;
 import com.concertbooking.repository.BookingRepository;
 import com.concertbooking.repository.ConcertRepository;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+public class BookingService implements BookingEngine, AutoCloseable {
+    public static final Duration DEFAULT_HOLD_TTL = Duration.ofMinutes(8);
+    private static final String ENGINE_NAME = "cas";
+    // Bookings one fork/join leaf cancels; the leaf records them with one journal write.
+    private static final int CANCEL_BATCH = 256;
 
-public class BookingService {
     private final BookingRepository bookingRepository;
-    private final ConcertRepository concertRepository;
+    protected final ConcertRepository concertRepository;
+    private final IdGenerator idGenerator;
+    private final Map<String, ActiveHold> holds = new ConcurrentHashMap<>();
+    // 100 ms ticks, 1024 buckets: one revolution is ~102 s, so an 8 minute hold goes round about 5 times.
+    private final HashedWheelTimer holdTimer = new HashedWheelTimer("seat-hold-timer", 100, TimeUnit.MILLISECONDS, 1024);
 
     public BookingService(BookingRepository bookingRepository, ConcertRepository concertRepository) {
+        this(bookingRepository, concertRepository, TimeOrderedIdGenerator.getDefault());
+    }
+
+    public BookingService(BookingRepository bookingRepository, ConcertRepository concertRepository, IdGenerator idGenerator) {
         this.bookingRepository = bookingRepository;
         this.concertRepository = concertRepository;
+        this.idGenerator = idGenerator;
     }
 
-    public Booking bookSeat(String userId, String concertId, List<String> seatIds, User user) throws SeatNotAvailableException {
-        Concert concert = concertRepository.findById(concertId).orElseThrow(() -> new SeatNotAvailableException("Concert not found with concert id :"+concertId));
-        List<Seat> seats = concert.getSeats().stream().filter((obj) -> seatIds.contains(obj.getId())).collect(Collectors.toList());
-        if (seats.size() != seatIds.size()) {
-            throw new SeatNotAvailableException("one or more seats are not available");
+    @Override
+    public Booking bookSeats(String userId, String concertId, List<String> seatIds, User user) throws SeatNotAvailableException {
+        long start = BookingMetrics.start();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Concert concert = findConcertOrNull(concertId);
+            if (concert == null) {
+                outcome = Outcome.CONCERT_NOT_FOUND;
+                throw new SeatNotAvailableException("Concert not found with concert id :" + concertId);
+            }
+            List<Seat> seats = resolveSeats(concert, seatIds);
+            if (seats == null) {
+                outcome = Outcome.UNKNOWN_SEAT;
+                throw new SeatNotAvailableException("one or more seats are not available");
+            }
+            // All-or-nothing: a group booking never leaves some of its seats BOOKED without a booking.
+            if(!concert.claimSeats(seats, SeatStatus.BOOKED)){
+                outcome = Outcome.SEAT_UNAVAILABLE;
+                throw new SeatNotAvailableException("one or more seats are not available");
+            }
+            double totalPrice = seats.stream().mapToDouble(Seat::getSeatPrice).sum();
+            Booking booking = new Booking(idGenerator.nextId(), user, concert, seats, totalPrice);
+            booking.confirm();
+            try {
+                bookingRepository.addBooking(booking);
+            } catch (RuntimeException e) {
+                // A booking that was never recorded must not keep its seats off sale.
+                seats.forEach(Seat::release);
+                throw e;
+            }
+            outcome = Outcome.SUCCESS;
+            return booking;
+        } finally {
+            BookingMetrics.record(Operation.BOOK, ENGINE_NAME, concertId, seatIds.size(), outcome, start);
         }
-        for(Seat seat: seats){
-            if(!seat.book()){
-                throw new SeatNotAvailableException("seat"+seat.getSeatNumber()+" is not available");
+    }
+
+    /**
+     * Books the best {@code count} adjacent seats of the given type instead of seats named by the caller.
+     */
+    public Booking bookBestAvailable(String userId, String concertId, int count, SeatType seatType, User user) throws SeatNotAvailableException {
+        long start = BookingMetrics.start();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Concert concert = findConcertOrNull(concertId);
+            if (concert == null) {
+                outcome = Outcome.CONCERT_NOT_FOUND;
+                throw new SeatNotAvailableException("Concert not found with concert id :" + concertId);
             }
+            List<Seat> seats = concert.getSeatAllocator().allocate(count, seatType, SeatStatus.BOOKED);
+            if (seats.isEmpty()) {
+                outcome = Outcome.SEAT_UNAVAILABLE;
+                throw new SeatNotAvailableException("No " + count + " adjacent " + seatType + " seats are available");
+            }
+            double totalPrice = seats.stream().mapToDouble(Seat::getSeatPrice).sum();
+            Booking booking = new Booking(idGenerator.nextId(), user, concert, seats, totalPrice);
+            booking.confirm();
+            try {
+                bookingRepository.addBooking(booking);
+            } catch (RuntimeException e) {
+                seats.forEach(Seat::release);
+                throw e;
+            }
+            outcome = Outcome.SUCCESS;
+            return booking;
+        } finally {
+            BookingMetrics.record(Operation.BOOK, ENGINE_NAME, concertId, count, outcome, start);
+        }
+    }
+
+    @Override
+    public boolean cancelBooking(String bookingId){
+        long start = BookingMetrics.start();
+        Outcome outcome = Outcome.ERROR;
+        Booking booking = null;
+        try {
+            booking = bookingRepository.findById(bookingId).orElse(null);
+            if (booking == null) {
+                outcome = Outcome.BOOKING_NOT_FOUND;
+                return false;
+            }
+            // Only the call that actually cancels may release, or a second cancel would free seats
+            // that someone else has booked since. The cancel is recorded before the seats can resell.
+            if (booking.cancel()) {
+                try {
+                    bookingRepository.updateBooking(booking);
+                } catch (RuntimeException e) {
+                    // Unrecorded, so still booked: the seats stay sold and a retry can cancel it again.
+                    booking.reinstate();
+                    throw e;
+                }
+                booking.getSeats().forEach(Seat::release);
+                outcome = Outcome.SUCCESS;
+            } else {
+                outcome = Outcome.ALREADY_CANCELLED;
+            }
+            return true;
+        } finally {
+            BookingMetrics.record(Operation.CANCEL, ENGINE_NAME, booking == null ? null : booking.getConcert().getId(),
+                    booking == null ? 0 : booking.getSeats().size(), outcome, start);
+        }
+    }
+
+    /**
+     * Moves the seats to RESERVED for {@code ttl}. The hold must be confirmed with {@link #confirmHold}
+     * before it expires, or the seats go back on sale automatically.
+     */
+    public SeatHold holdSeats(String userId, String concertId, List<String> seatIds, User user, Duration ttl) throws SeatNotAvailableException {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        Concert concert = findConcertOrNull(concertId);
+        if (concert == null) {
+            throw new SeatNotAvailableException("Concert not found with concert id :" + concertId);
+        }
+        List<Seat> seats = resolveSeats(concert, seatIds);
+        if(seats == null || !concert.claimSeats(seats, SeatStatus.RESERVED)){
+            throw new SeatNotAvailableException("one or more seats are not available");
         }
         double totalPrice = seats.stream().mapToDouble(Seat::getSeatPrice).sum();
-        Booking booking = new Booking(UUID.randomUUID().toString(), user, concert, seats, totalPrice);
+        SeatHold hold = new SeatHold(CompactIds.format(idGenerator.nextId()), user, concert, seats, totalPrice, Instant.now().plus(ttl));
+        HashedWheelTimer.Timeout timeout = holdTimer.newTimeout(() -> expireHold(hold), ttl.toNanos(), TimeUnit.NANOSECONDS);
+        ActiveHold active = new ActiveHold(hold, timeout);
+        holds.put(hold.getId(), active);
+        // A short hold can expire before it is put, when expireHold finds nothing to remove; take it out here.
+        if (hold.getStatus() != HoldStatus.ACTIVE) {
+            holds.remove(hold.getId(), active);
+        }
+        return hold;
+    }
+
+    public Booking confirmHold(String holdId) throws SeatNotAvailableException {
+        ActiveHold active = holds.get(holdId);
+        if (active == null) {
+            throw new SeatNotAvailableException("Hold " + holdId + " does not exist or has ended");
+        }
+        SeatHold hold = active.hold;
+        // The wheel fires up to a tick late; a hold past its deadline is expired here rather than confirmed.
+        if (Instant.now().isAfter(hold.getExpiresAt())) {
+            expireHold(hold);
+        }
+        if (!hold.confirm()) {
+            throw new SeatNotAvailableException("Hold " + holdId + " is " + hold.getStatus());
+        }
+        endHold(active);
+        for (Seat seat : hold.getSeats()) {
+            seat.confirmReservation();
+        }
+        Booking booking = new Booking(idGenerator.nextId(), hold.getUser(), hold.getConcert(), hold.getSeats(), hold.getTotalPrice());
         booking.confirm();
-        bookingRepository.addBooking(booking);
+        try {
+            bookingRepository.addBooking(booking);
+        } catch (RuntimeException e) {
+            hold.getSeats().forEach(Seat::release);
+            throw e;
+        }
         return booking;
     }
 
-    public boolean cancelBooking(String bookingId){
-        return bookingRepository.findById(bookingId)
-                .map(booking -> {
-                    booking.cancel();
-                    booking.getSeats().forEach(Seat::release);
-                    return true;
-                })
-                .orElse(false);
+    public boolean releaseHold(String holdId) {
+        ActiveHold active = holds.get(holdId);
+        if (active == null || !active.hold.release()) {
+            return false;
+        }
+        endHold(active);
+        active.hold.getSeats().forEach(Seat::unreserve);
+        return true;
+    }
+
+    /**
+     * Cancels every booking for the concert and releases its holds, cancelling the bookings in parallel on
+     * the common fork/join pool. Close the concert's sales first, or bookings made during the sweep may be
+     * missed. A booking its user cancels at the same time is released once, by whichever cancel wins.
+     */
+    public ConcertCancellation cancelAllBookings(String concertId) {
+        int releasedHolds = 0;
+        for (ActiveHold active : holds.values()) {
+            if (active.hold.getConcert().getId().equals(concertId) && releaseHold(active.hold.getId())) {
+                releasedHolds++;
+            }
+        }
+        List<Booking> bookings = bookingRepository.findByConcertId(concertId);
+        Refunds refunds = ForkJoinPool.commonPool().invoke(new CancelBookings(bookings, 0, bookings.size()));
+        return new ConcertCancellation(concertId, refunds.bookings, refunds.seats, releasedHolds, refunds.total, refunds.byUser);
+    }
+
+    public Optional<SeatHold> findHold(String holdId) {
+        ActiveHold active = holds.get(holdId);
+        return active == null ? Optional.empty() : Optional.of(active.hold);
+    }
+
+    /**
+     * Stops the hold timer. Holds still open no longer expire on their own.
+     */
+    @Override
+    public void close() {
+        holdTimer.stop();
+    }
+
+    private void expireHold(SeatHold hold) {
+        if (hold.expire()) {
+            holds.remove(hold.getId());
+            hold.getSeats().forEach(Seat::unreserve);
+        }
+    }
+
+    private void endHold(ActiveHold active) {
+        active.timeout.cancel();
+        holds.remove(active.hold.getId());
+    }
+
+    // ConcertRepositoryImpl reports an unknown concert by throwing rather than with an empty Optional.
+    private Concert findConcertOrNull(String concertId) {
+        try {
+            return concertRepository.findById(concertId).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Null if any of the seats does not exist.
+    private static List<Seat> resolveSeats(Concert concert, List<String> seatIds) {
+        List<Seat> seats = new ArrayList<>(seatIds.size());
+        for (String seatId : seatIds) {
+            Seat seat = concert.getSeat(seatId);
+            if (seat == null) {
+                return null;
+            }
+            seats.add(seat);
+        }
+        return seats;
+    }
+
+    private static final class ActiveHold {
+        private final SeatHold hold;
+        private final HashedWheelTimer.Timeout timeout;
+
+        private ActiveHold(SeatHold hold, HashedWheelTimer.Timeout timeout) {
+            this.hold = hold;
+            this.timeout = timeout;
+        }
+    }
+
+    private final class CancelBookings extends RecursiveTask<Refunds> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Booking> bookings;
+        private final int from;
+        private final int to;
+
+        CancelBookings(List<Booking> bookings, int from, int to) {
+            this.bookings = bookings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Refunds compute() {
+            if (to - from > CANCEL_BATCH) {
+                int middle = (from + to) >>> 1;
+                CancelBookings left = new CancelBookings(bookings, from, middle);
+                left.fork();
+                Refunds right = new CancelBookings(bookings, middle, to).compute();
+                return right.add(left.join());
+            }
+            // As in cancelBooking: only the winning cancel releases, after the cancel is recorded.
+            List<Booking> cancelled = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Booking booking = bookings.get(i);
+                if (booking.cancel()) {
+                    cancelled.add(booking);
+                }
+            }
+            try {
+                bookingRepository.updateBookings(cancelled);
+            } catch (RuntimeException e) {
+                // Unrecorded, so still booked: they keep their seats and cancelling the concert again redoes them.
+                cancelled.forEach(Booking::reinstate);
+                throw e;
+            }
+            Refunds refunds = new Refunds();
+            for (Booking booking : cancelled) {
+                booking.getSeats().forEach(Seat::release);
+                refunds.add(booking);
+            }
+            return refunds;
+        }
+    }
+
+    private static final class Refunds {
+        int bookings;
+        int seats;
+        double total;
+        final Map<String, Double> byUser = new HashMap<>();
+
+        void add(Booking booking) {
+            bookings++;
+            seats += booking.getSeats().size();
+            total += booking.getTotalPrice();
+            byUser.merge(booking.getUser().getId(), booking.getTotalPrice(), Double::sum);
+        }
+
+        Refunds add(Refunds other) {
+            bookings += other.bookings;
+            seats += other.seats;
+            total += other.total;
+            other.byUser.forEach((user, amount) -> byUser.merge(user, amount, Double::sum));
+            return this;
+        }
     }
 }
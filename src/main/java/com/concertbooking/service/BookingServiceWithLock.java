@@ -1,65 +1,169 @@
 package com.concertbooking.service;
 
 import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.id.IdGenerator;
+import com.concertbooking.id.TimeOrderedIdGenerator;
+import com.concertbooking.metrics.BookingMetrics;
+import com.concertbooking.metrics.BookingMetrics.Operation;
+import com.concertbooking.metrics.BookingMetrics.Outcome;
 import com.concertbooking.model.*;
 import com.concertbooking.repository.BookingRepository;
 import com.concertbooking.repository.ConcertRepository;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 
-public class BookingServiceWithLock {
+public class BookingServiceWithLock implements BookingEngine {
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+    private static final String ENGINE_NAME = "lock";
+
     private final BookingRepository bookingRepository;
-    private final ConcertRepository concertRepository;
-    private final ReentrantLock bookingLock = new ReentrantLock();
+    protected final ConcertRepository concertRepository;
+    // Bookings for one concert always map to the same stripe, so a hot on-sale only blocks the few
+    // concerts that share its stripe instead of every concert in the JVM.
+    private final ReentrantLock[] bookingLocks;
+    private final IdGenerator idGenerator;
 
     public BookingServiceWithLock(BookingRepository bookingRepository, ConcertRepository concertRepository) {
+        this(bookingRepository, concertRepository, DEFAULT_LOCK_STRIPES);
+    }
+
+    public BookingServiceWithLock(BookingRepository bookingRepository, ConcertRepository concertRepository, int lockStripes) {
+        this(bookingRepository, concertRepository, lockStripes, TimeOrderedIdGenerator.getDefault());
+    }
+
+    public BookingServiceWithLock(BookingRepository bookingRepository, ConcertRepository concertRepository, int lockStripes, IdGenerator idGenerator) {
+        if (lockStripes <= 0 || Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("Lock stripes must be a positive power of two");
+        }
         this.bookingRepository = bookingRepository;
         this.concertRepository = concertRepository;
+        this.idGenerator = idGenerator;
+        this.bookingLocks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            bookingLocks[i] = new ReentrantLock();
+        }
     }
 
-    public Booking bookSeats(String userId, String concertId, List<Seat> seatIds, User user) throws SeatNotAvailableException {
-        bookingLock.lock();
-        try {
-            Concert concert = concertRepository.findById(concertId).orElseThrow(() -> new NullPointerException("Concert not found"));
-            List<Seat> seatsToBook = concert.getSeats().stream().filter((seat -> seatIds.contains(seat.getId()))).collect(Collectors.toList());
+    private ReentrantLock bookingLock(String concertId) {
+        int hash = concertId.hashCode();
+        return bookingLocks[(hash ^ (hash >>> 16)) & (bookingLocks.length - 1)];
+    }
 
-            if (seatsToBook.size() != seatIds.size()) {
-                throw new SeatNotAvailableException(seatsToBook.size() + " seats are not available");
+    @Override
+    public Booking bookSeats(String userId, String concertId, List<String> seatIds, User user) throws SeatNotAvailableException {
+        long start = BookingMetrics.start();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Concert concert = findConcertOrNull(concertId);
+            if (concert == null) {
+                outcome = Outcome.CONCERT_NOT_FOUND;
+                throw new SeatNotAvailableException("Concert not found with concert id :" + concertId);
             }
+            ReentrantLock bookingLock = bookingLock(concertId);
+            long waitStart = BookingMetrics.start();
+            bookingLock.lock();
+            long acquired = BookingMetrics.lockAcquired(waitStart);
+            try {
+                List<Seat> seatsToBook = new ArrayList<>(seatIds.size());
+                for (String seatId : seatIds) {
+                    Seat seat = concert.getSeat(seatId);
+                    if (seat == null) {
+                        outcome = Outcome.UNKNOWN_SEAT;
+                        throw new SeatNotAvailableException("Seat " + seatId + " is not available");
+                    }
+                    seatsToBook.add(seat);
+                }
 
-            for (Seat seat : seatsToBook) {
-                if(seat.getStatus() != SeatStatus.AVAILABLE) {
+                // The lock only orders this engine's own bookings; holds and best-available bookings claim
+                // without it, so the claim itself must be all-or-nothing.
+                if (!concert.claimSeats(seatsToBook, SeatStatus.BOOKED)) {
+                    outcome = Outcome.SEAT_UNAVAILABLE;
                     throw new SeatNotAvailableException("One or more seats are not available");
                 }
-                seat.setStatus(SeatStatus.BOOKED);
-            }
 
-            double totalPrice = seatsToBook.stream().mapToDouble(Seat::getSeatPrice).sum();
-            Booking booking = new Booking(UUID.randomUUID().toString(), user, concert, seatsToBook, totalPrice);
+                double totalPrice = seatsToBook.stream().mapToDouble(Seat::getSeatPrice).sum();
+                Booking booking = new Booking(idGenerator.nextId(), user, concert, seatsToBook, totalPrice);
 
-            booking.confirm();
-            bookingRepository.addBooking(booking);
-            return booking;
+                booking.confirm();
+                try {
+                    bookingRepository.addBooking(booking);
+                } catch (RuntimeException e) {
+                    // A booking that was never recorded must not keep its seats off sale.
+                    seatsToBook.forEach(Seat::release);
+                    throw e;
+                }
+                outcome = Outcome.SUCCESS;
+                return booking;
+            } finally {
+                bookingLock.unlock();
+                BookingMetrics.lockReleased(concertId, waitStart, acquired);
+            }
         } finally {
-            bookingLock.unlock();
+            BookingMetrics.record(Operation.BOOK, ENGINE_NAME, concertId, seatIds.size(), outcome, start);
         }
     }
 
+    @Override
     public boolean cancelBooking(String bookingId) {
-        bookingLock.lock(); // Acquire the lock
+        long start = BookingMetrics.start();
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null) {
+            BookingMetrics.record(Operation.CANCEL, ENGINE_NAME, null, 0, Outcome.BOOKING_NOT_FOUND, start);
+            return false;
+        }
+        String concertId = booking.getConcert().getId();
+        Outcome outcome = Outcome.ERROR;
+        ReentrantLock bookingLock = bookingLock(concertId);
+        long waitStart = BookingMetrics.start();
+        bookingLock.lock();
+        long acquired = BookingMetrics.lockAcquired(waitStart);
         try {
-            return bookingRepository.findById(bookingId)
-                    .map(booking -> {
-                        booking.cancel(); // This now just sets status to CANCELLED
-                        booking.getSeats().forEach(seat -> seat.setStatus(SeatStatus.AVAILABLE)); // Set status directly
-                        return true;
-                    })
-                    .orElse(false);
+            if (booking.cancel()) {
+                try {
+                    bookingRepository.updateBooking(booking);
+                } catch (RuntimeException e) {
+                    // Unrecorded, so still booked: the seats stay sold and a retry can cancel it again.
+                    booking.reinstate();
+                    throw e;
+                }
+                booking.getSeats().forEach(Seat::release);
+                outcome = Outcome.SUCCESS;
+            } else {
+                outcome = Outcome.ALREADY_CANCELLED;
+            }
+            return true;
         } finally {
-            bookingLock.unlock(); // Release the lock
+            bookingLock.unlock();
+            BookingMetrics.lockReleased(concertId, waitStart, acquired);
+            BookingMetrics.record(Operation.CANCEL, ENGINE_NAME, concertId, booking.getSeats().size(), outcome, start);
         }
     }
+
+    // ConcertRepositoryImpl reports an unknown concert by throwing rather than with an empty Optional.
+    private Concert findConcertOrNull(String concertId) {
+        try {
+            return concertRepository.findById(concertId).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Read path: seat states are atomic, so availability queries never take a booking lock. An unknown
+    // concert has no seats to offer, so it reads as having none available.
+
+    public boolean isSeatAvailable(String concertId, String seatId) {
+        Concert concert = findConcertOrNull(concertId);
+        if (concert == null) {
+            return false;
+        }
+        Seat seat = concert.getSeat(seatId);
+        return seat != null && seat.getStatus() == SeatStatus.AVAILABLE;
+    }
+
+    public int getAvailableSeatCount(String concertId) {
+        Concert concert = findConcertOrNull(concertId);
+        return concert == null ? 0 : concert.getAvailableSeatCount();
+    }
 }
@@ -0,0 +1,398 @@
+package com.concertbooking.service;
+
+import com.concertbooking.concurrent.MpscRingBuffer;
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.id.IdGenerator;
+import com.concertbooking.id.TimeOrderedIdGenerator;
+import com.concertbooking.metrics.BookingMetrics;
+import com.concertbooking.metrics.BookingMetrics.Operation;
+import com.concertbooking.metrics.BookingMetrics.Outcome;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.BookingStatus;
+import com.concertbooking.model.Concert;
+import com.concertbooking.model.Seat;
+import com.concertbooking.model.SeatStatus;
+import com.concertbooking.model.User;
+import com.concertbooking.repository.BookingRepository;
+import com.concertbooking.repository.ConcertRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Booking engine in which every concert has exactly one writer thread.
+ *
+ * <p>Concerts hash onto a fixed set of writers. Callers put booking and cancel requests into their
+ * concert's writer's ring buffer and get a future back; the writer drains the ring in batches, applies
+ * the requests in arrival order and then completes the batch's futures. With one writer per concert
+ * nothing ever competes for its seats, so the seat claims always succeed first time and per-request
+ * costs such as waking the writer are paid once per batch. So is recording: the batch's new bookings go
+ * to the repository in one call and its cancellations in another, which with a journal means one
+ * durable append each rather than one per request. Seat state is still written through the
+ * concert's {@link com.concertbooking.model.SeatStateStore}, so holds and best-available bookings made by
+ * {@link BookingService} stay safe alongside this engine.
+ */
+public class PipelinedBookingEngine implements BookingEngine, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(PipelinedBookingEngine.class.getName());
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+    private static final int MAX_BATCH = 256;
+    private static final int IDLE_SPINS = 64;
+    private static final String ENGINE_NAME = "pipeline";
+
+    private final BookingRepository bookingRepository;
+    private final ConcertRepository concertRepository;
+    private final Writer[] writers;
+    private final IdGenerator idGenerator;
+    private volatile boolean running = true;
+
+    public PipelinedBookingEngine(BookingRepository bookingRepository, ConcertRepository concertRepository) {
+        this(bookingRepository, concertRepository, Runtime.getRuntime().availableProcessors(), DEFAULT_RING_CAPACITY);
+    }
+
+    public PipelinedBookingEngine(BookingRepository bookingRepository, ConcertRepository concertRepository, int writerCount, int ringCapacity) {
+        this(bookingRepository, concertRepository, writerCount, ringCapacity, TimeOrderedIdGenerator.getDefault());
+    }
+
+    public PipelinedBookingEngine(BookingRepository bookingRepository, ConcertRepository concertRepository, int writerCount,
+                                  int ringCapacity, IdGenerator idGenerator) {
+        if (writerCount <= 0) {
+            throw new IllegalArgumentException("Writer count must be positive");
+        }
+        this.bookingRepository = bookingRepository;
+        this.concertRepository = concertRepository;
+        this.idGenerator = idGenerator;
+        this.writers = new Writer[writerCount];
+        for (int i = 0; i < writerCount; i++) {
+            writers[i] = new Writer(ringCapacity);
+            writers[i].thread = RequestExecutors.daemonThreads("booking-writer-" + i).newThread(writers[i]);
+            writers[i].thread.start();
+        }
+    }
+
+    @Override
+    public Booking bookSeats(String userId, String concertId, List<String> seatIds, User user) throws SeatNotAvailableException {
+        return join(submitBooking(userId, concertId, seatIds, user));
+    }
+
+    @Override
+    public boolean cancelBooking(String bookingId) {
+        return join(submitCancel(bookingId));
+    }
+
+    public CompletableFuture<Booking> submitBooking(String userId, String concertId, List<String> seatIds, User user) {
+        Request request = new Request(concertId, seatIds, user, null);
+        writerFor(concertId).submit(request);
+        return request.booked;
+    }
+
+    public CompletableFuture<Boolean> submitCancel(String bookingId) {
+        long start = BookingMetrics.start();
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null) {
+            BookingMetrics.record(Operation.CANCEL, ENGINE_NAME, null, 0, Outcome.BOOKING_NOT_FOUND, start);
+            return CompletableFuture.completedFuture(false);
+        }
+        Request request = new Request(booking.getConcert().getId(), null, null, booking);
+        writerFor(request.concertId).submit(request);
+        return request.cancelled;
+    }
+
+    /**
+     * Stops the writers once they have applied what is already queued, and waits for them to exit.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Writer writer : writers) {
+            LockSupport.unpark(writer.thread);
+        }
+        for (Writer writer : writers) {
+            writer.failStranded();
+        }
+    }
+
+    private Writer writerFor(String concertId) {
+        int hash = concertId.hashCode();
+        return writers[Math.floorMod(hash ^ (hash >>> 16), writers.length)];
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Runs on the writer that owns the concert, so the claim below never races another engine request.
+    private Booking applyBooking(Request request) {
+        Concert concert = findConcertOrNull(request.concertId);
+        if (concert == null) {
+            request.outcome = Outcome.CONCERT_NOT_FOUND;
+            throw new SeatNotAvailableException("Concert not found with concert id :" + request.concertId);
+        }
+        List<Seat> seats = new ArrayList<>(request.seatIds.size());
+        for (String seatId : request.seatIds) {
+            Seat seat = concert.getSeat(seatId);
+            if (seat == null) {
+                request.outcome = Outcome.UNKNOWN_SEAT;
+                throw new SeatNotAvailableException("one or more seats are not available");
+            }
+            seats.add(seat);
+        }
+        if (!concert.claimSeats(seats, SeatStatus.BOOKED)) {
+            request.outcome = Outcome.SEAT_UNAVAILABLE;
+            throw new SeatNotAvailableException("one or more seats are not available");
+        }
+        double totalPrice = seats.stream().mapToDouble(Seat::getSeatPrice).sum();
+        Booking booking = new Booking(idGenerator.nextId(), request.user, concert, seats, totalPrice);
+        booking.confirm();
+        return booking;
+    }
+
+    // ConcertRepositoryImpl reports an unknown concert by throwing rather than with an empty Optional.
+    private Concert findConcertOrNull(String concertId) {
+        try {
+            return concertRepository.findById(concertId).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Request {
+        private final String concertId;
+        private final List<String> seatIds;
+        private final User user;
+        private final Booking bookingToCancel;
+        private final CompletableFuture<Booking> booked = new CompletableFuture<>();
+        private final CompletableFuture<Boolean> cancelled = new CompletableFuture<>();
+        private final long start = BookingMetrics.start();
+        // Outcome, held until the whole batch has been applied and recorded.
+        private Booking result;
+        private boolean cancels;
+        private Throwable failure;
+        private Outcome outcome = Outcome.SUCCESS;
+
+        Request(String concertId, List<String> seatIds, User user, Booking bookingToCancel) {
+            this.concertId = concertId;
+            this.seatIds = seatIds;
+            this.user = user;
+            this.bookingToCancel = bookingToCancel;
+        }
+
+        void fail(Throwable e) {
+            failure = e;
+            outcome = Outcome.ERROR;
+        }
+    }
+
+    private final class Writer implements Runnable {
+        private final MpscRingBuffer<Request> ring;
+        private final List<Request> batch = new ArrayList<>(MAX_BATCH);
+        // The batch's changes, waiting to be recorded.
+        private final List<Booking> added = new ArrayList<>(MAX_BATCH);
+        private final List<Booking> cancelled = new ArrayList<>(MAX_BATCH);
+        private volatile boolean parked;
+        // Set if the writer thread died; requests routed to it then fail instead of waiting forever.
+        private volatile boolean failed;
+        private Thread thread;
+
+        Writer(int ringCapacity) {
+            this.ring = new MpscRingBuffer<>(ringCapacity);
+        }
+
+        void submit(Request request) {
+            if (!running || failed) {
+                IllegalStateException stopped = stopped();
+                request.fail(stopped);
+                complete(request);
+                throw stopped;
+            }
+            // A full ring pushes back on the caller until the writer catches up.
+            while (!ring.offer(request)) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+            // Closing, or the writer failing, between the check above and the offer can leave the request
+            // behind the writer's last look at the ring.
+            if (!running || failed) {
+                failStranded();
+            }
+        }
+
+        // The ring has a single consumer, so what is left in it is only taken once the writer has exited.
+        synchronized void failStranded() {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            failQueued(stopped());
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private IllegalStateException stopped() {
+            return new IllegalStateException(failed ? "Booking writer has failed" : "Booking engine has been closed");
+        }
+
+        private void failQueued(Throwable failure) {
+            ring.drain(request -> {
+                request.fail(failure);
+                complete(request);
+            }, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void run() {
+            try {
+                int idle = 0;
+                while (running || !ring.isEmpty()) {
+                    if (ring.drain(batch::add, MAX_BATCH) == 0) {
+                        idle = idle(idle);
+                        continue;
+                    }
+                    idle = 0;
+                    for (Request request : batch) {
+                        apply(request);
+                    }
+                    record();
+                    for (Request request : batch) {
+                        complete(request);
+                    }
+                    batch.clear();
+                }
+            } catch (Throwable e) {
+                // apply catches each request's own failures, so this is the writer itself breaking down.
+                LOG.log(Level.SEVERE, "Booking writer stopped", e);
+                failed = true;
+                for (Request request : batch) {
+                    request.fail(e);
+                    complete(request);
+                }
+                batch.clear();
+                failQueued(e);
+            }
+        }
+
+        // Changes the seats and bookings in memory only; record writes the whole batch's changes afterwards.
+        private void apply(Request request) {
+            try {
+                if (request.bookingToCancel != null) {
+                    // Same rule as BookingService: only the call that actually cancels releases the seats.
+                    if (request.bookingToCancel.cancel()) {
+                        request.cancels = true;
+                        cancelled.add(request.bookingToCancel);
+                    } else {
+                        request.outcome = Outcome.ALREADY_CANCELLED;
+                    }
+                } else {
+                    request.result = applyBooking(request);
+                    added.add(request.result);
+                }
+            } catch (Throwable e) {
+                // Errors too: an uncaught one would kill the writer and leave every request behind it waiting.
+                request.failure = e;
+                if (request.outcome == Outcome.SUCCESS) {
+                    request.outcome = Outcome.ERROR;
+                }
+            }
+        }
+
+        // Cancelled seats go back on sale only once the cancels are recorded, so a booking later in the same
+        // batch cannot have them yet.
+        private void record() {
+            if (!added.isEmpty()) {
+                try {
+                    bookingRepository.addBookings(added);
+                } catch (Throwable e) {
+                    // Bookings that were never recorded must not keep their seats off sale.
+                    for (Request request : batch) {
+                        if (request.result != null) {
+                            request.result.getSeats().forEach(Seat::release);
+                            request.result = null;
+                            request.fail(e);
+                        }
+                    }
+                }
+                added.clear();
+            }
+            if (!cancelled.isEmpty()) {
+                try {
+                    bookingRepository.updateBookings(cancelled);
+                    for (Booking booking : cancelled) {
+                        booking.getSeats().forEach(Seat::release);
+                    }
+                } catch (Throwable e) {
+                    // Unrecorded, so still booked: the seats stay sold and a retry can cancel them again.
+                    for (Request request : batch) {
+                        if (request.cancels) {
+                            request.bookingToCancel.reinstate();
+                        }
+                    }
+                    // That includes a second cancel of one of them in this batch, which found it cancelled.
+                    for (Request request : batch) {
+                        if (request.bookingToCancel != null && request.failure == null
+                                && request.bookingToCancel.getStatus() != BookingStatus.CANCELLED) {
+                            request.fail(e);
+                        }
+                    }
+                }
+                cancelled.clear();
+            }
+        }
+
+        // Metrics are recorded before the future completes, so a caller that has its answer finds it counted.
+        private void complete(Request request) {
+            if (request.bookingToCancel != null) {
+                BookingMetrics.record(Operation.CANCEL, ENGINE_NAME, request.concertId, request.bookingToCancel.getSeats().size(),
+                        request.outcome, request.start);
+                if (request.failure != null) {
+                    request.cancelled.completeExceptionally(request.failure);
+                } else {
+                    request.cancelled.complete(true);
+                }
+                return;
+            }
+            BookingMetrics.record(Operation.BOOK, ENGINE_NAME, request.concertId, request.seatIds.size(), request.outcome, request.start);
+            if (request.failure != null) {
+                request.booked.completeExceptionally(request.failure);
+            } else {
+                request.booked.complete(request.result);
+            }
+        }
+
+        private int idle(int idle) {
+            if (idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+                return idle + 1;
+            }
+            parked = true;
+            // Re-check after advertising that we are parking, so a request offered meanwhile is not stranded.
+            if (ring.isEmpty() && running) {
+                LockSupport.park(this);
+            }
+            parked = false;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.concertbooking.system;
+
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.model.Booking;
+import com.concertbooking.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking front of {@link ConcertTicketBookingSystem}: every call returns at once with a future and
+ * runs on its own task of a per-request executor, virtual threads where the runtime has them.
+ *
+ * <p>Calls can carry a deadline. A request still queued when its deadline passes is dropped without
+ * touching any seat, and its future fails with {@link TimeoutException}. A booking that completes after
+ * its future has already timed out or been cancelled by the caller is cancelled again, so a caller that
+ * gave up never ends up holding seats it does not know about.
+ */
+public class AsyncBookingSystem implements AutoCloseable {
+    private static final int DEFAULT_FALLBACK_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final ConcertTicketBookingSystem system;
+    private final ExecutorService executor;
+
+    public AsyncBookingSystem(ConcertTicketBookingSystem system) {
+        this(system, RequestExecutors.newPerRequestExecutor("async-booking", DEFAULT_FALLBACK_THREADS));
+    }
+
+    /**
+     * Runs requests on the given executor, which {@link #close} shuts down.
+     */
+    public AsyncBookingSystem(ConcertTicketBookingSystem system, ExecutorService executor) {
+        this.system = system;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Booking> bookTickets(String userId, String concertId, List<String> seatIds, User user) {
+        return bookTickets(new BookingRequest(userId, concertId, seatIds, user), null);
+    }
+
+    public CompletableFuture<Booking> bookTickets(String userId, String concertId, List<String> seatIds, User user, Duration timeout) {
+        return bookTickets(new BookingRequest(userId, concertId, seatIds, user), Instant.now().plus(timeout));
+    }
+
+    /**
+     * Books on the executor. With a {@code deadline}, the future fails with {@link TimeoutException} once it
+     * passes; {@code null} means no deadline.
+     */
+    public CompletableFuture<Booking> bookTickets(BookingRequest request, Instant deadline) {
+        CompletableFuture<Booking> result = new CompletableFuture<>();
+        if (!applyDeadline(result, deadline)) {
+            return result;
+        }
+        submit(result, () -> {
+            // The caller has already given up on a request that was still queued; leave its seats alone.
+            if (result.isDone()) {
+                return;
+            }
+            Booking booking = system.bookTickets(request.userId, request.concertId, request.seatIds, request.user);
+            if (!result.complete(booking)) {
+                system.cancelBooking(booking.getId());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Submits every request at once and returns their futures in the same order. Each request succeeds or
+     * fails on its own; combine them with {@link CompletableFuture#allOf} to wait for the lot.
+     */
+    public List<CompletableFuture<Booking>> bookAll(List<BookingRequest> requests, Instant deadline) {
+        List<CompletableFuture<Booking>> futures = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+            futures.add(bookTickets(request, deadline));
+        }
+        return futures;
+    }
+
+    public CompletableFuture<Boolean> cancelBooking(String bookingId) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // A cancel is always carried out once started, so it takes no deadline.
+        submit(result, () -> result.complete(system.cancelBooking(bookingId)));
+        return result;
+    }
+
+    /**
+     * Stops accepting requests. Requests already submitted still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static boolean applyDeadline(CompletableFuture<?> result, Instant deadline) {
+        if (deadline == null) {
+            return true;
+        }
+        long remaining = Duration.between(Instant.now(), deadline).toNanos();
+        if (remaining <= 0) {
+            result.completeExceptionally(new TimeoutException("Deadline passed before the request was submitted"));
+            return false;
+        }
+        result.orTimeout(remaining, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    private void submit(CompletableFuture<?> result, Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * One booking in a {@link #bookAll} batch.
+     */
+    public static final class BookingRequest {
+        private final String userId;
+        private final String concertId;
+        private final List<String> seatIds;
+        private final User user;
+
+        public BookingRequest(String userId, String concertId, List<String> seatIds, User user) {
+            this.userId = userId;
+            this.concertId = concertId;
+            this.seatIds = List.copyOf(seatIds);
+            this.user = user;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getConcertId() {
+            return concertId;
+        }
+
+        public List<String> getSeatIds() {
+            return seatIds;
+        }
+
+        public User getUser() {
+            return user;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.concertbooking.system;
+
+import com.concertbooking.concurrent.RequestExecutors;
+import com.concertbooking.id.IdGenerator;
+import com.concertbooking.journal.BookingJournal;
+import com.concertbooking.journal.SnapshotStore;
+import com.concertbooking.journal.Snapshotter;
+import com.concertbooking.journal.SyncMode;
+import com.concertbooking.model.Booking;
+import com.concertbooking.repository.BookingRepository;
+import com.concertbooking.repository.ConcertRepository;
+import com.concertbooking.repository.impl.BookingRepositoryImpl;
+import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.repository.impl.JournaledBookingRepository;
+import com.concertbooking.repository.impl.NotifyingBookingRepository;
+import com.concertbooking.service.BookingEngine;
+import com.concertbooking.service.BookingService;
+import com.concertbooking.service.BookingServiceWithLock;
+import com.concertbooking.service.PipelinedBookingEngine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * One partition of {@link ConcertTicketBookingSystem}: the concerts that hash to it, their bookings and
+ * holds, the engines that write them, and, if configured, its own journal and snapshots. Shards share
+ * nothing, so bookings on different shards never touch the same lock, map stripe or journal.
+ */
+final class BookingShard {
+    final ConcertRepository concertRepository;
+    final BookingRepository bookingRepository;
+    final BookingService bookingService;
+    final BookingEngine bookingEngine;
+    final SnapshotStore snapshotStore;
+    // Runs this shard's part of cross-shard queries.
+    final ExecutorService executor;
+    private final JournaledBookingRepository journaled;
+    private Snapshotter snapshotter;
+
+    BookingShard(int index, int threads, IdGenerator idGenerator, String engine, Path journalDir, SyncMode syncMode, Path snapshotDir,
+                 Consumer<Booking> bookingListener) {
+        this.concertRepository = new ConcertRepositoryImpl();
+        this.journaled = journalDir == null
+                ? null
+                : new JournaledBookingRepository(new BookingRepositoryImpl(), new BookingJournal(journalDir, syncMode));
+        this.bookingRepository = new NotifyingBookingRepository(journaled == null ? new BookingRepositoryImpl() : journaled,
+                bookingListener);
+        this.snapshotStore = snapshotDir == null ? null : new SnapshotStore(snapshotDir);
+        this.bookingService = new BookingService(bookingRepository, concertRepository, idGenerator);
+        this.bookingEngine = createEngine(engine, threads, idGenerator);
+        this.executor = Executors.newFixedThreadPool(threads, RequestExecutors.daemonThreads("booking-shard-" + index));
+    }
+
+    private BookingEngine createEngine(String name, int threads, IdGenerator idGenerator) {
+        switch (name) {
+            case "cas": return bookingService;
+            case "lock": return new BookingServiceWithLock(bookingRepository, concertRepository,
+                    BookingServiceWithLock.DEFAULT_LOCK_STRIPES, idGenerator);
+            case "pipeline": return new PipelinedBookingEngine(bookingRepository, concertRepository, threads,
+                    PipelinedBookingEngine.DEFAULT_RING_CAPACITY, idGenerator);
+            default: throw new IllegalArgumentException("Unknown booking engine " + name + "; expected cas, lock or pipeline");
+        }
+    }
+
+    synchronized int recoverBookings(Duration snapshotInterval) {
+        if (journaled == null) {
+            return 0;
+        }
+        int recovered = journaled.recover(concertRepository, snapshotStore);
+        if (snapshotStore != null && snapshotter == null) {
+            snapshotter = new Snapshotter(journaled.getJournal(), snapshotStore, concertRepository);
+            snapshotter.start(snapshotInterval);
+        }
+        return recovered;
+    }
+
+    synchronized long takeSnapshot() {
+        if (snapshotter == null) {
+            throw new IllegalStateException("Snapshots are not configured or bookings have not been recovered yet");
+        }
+        return snapshotter.takeSnapshot();
+    }
+
+    /**
+     * Stops the shard's background work: engine writers, the hold timer, snapshots and the journal.
+     */
+    synchronized void close() {
+        if (bookingEngine instanceof PipelinedBookingEngine) {
+            ((PipelinedBookingEngine) bookingEngine).close();
+        }
+        bookingService.close();
+        if (snapshotter != null) {
+            snapshotter.close();
+        }
+        if (journaled != null) {
+            journaled.close();
+        }
+        executor.shutdown();
+    }
+}
@@ -1,28 +1,147 @@
 package com.concertbooking.system;
 
+import com.concertbooking.admission.WaitingRoom;
+import com.concertbooking.concurrent.IdempotencyCache;
+import com.concertbooking.exception.NotAdmittedException;
+import com.concertbooking.exception.SeatNotAvailableException;
+import com.concertbooking.feed.SeatChangeFeed;
+import com.concertbooking.feed.SeatFeedSubscription;
+import com.concertbooking.id.CompactIds;
+import com.concertbooking.id.IdGenerator;
+import com.concertbooking.id.TimeOrderedIdGenerator;
+import com.concertbooking.journal.SyncMode;
+import com.concertbooking.metrics.BookingMetrics;
+import com.concertbooking.metrics.MetricsSnapshot;
+import com.concertbooking.model.AvailabilitySummary;
 import com.concertbooking.model.Booking;
+import com.concertbooking.model.BookingStatus;
 import com.concertbooking.model.Concert;
+import com.concertbooking.model.ConcertCancellation;
+import com.concertbooking.model.SalesGate;
+import com.concertbooking.model.SeatHold;
+import com.concertbooking.model.SeatMap;
+import com.concertbooking.model.SeatStatus;
+import com.concertbooking.model.SeatType;
 import com.concertbooking.model.User;
-import com.concertbooking.repository.BookingRepository;
-import com.concertbooking.repository.ConcertRepository;
-import com.concertbooking.repository.impl.BookingRepositoryImpl;
-import com.concertbooking.repository.impl.ConcertRepositoryImpl;
+import com.concertbooking.model.VenueLayout;
+import com.concertbooking.repository.Cursors;
+import com.concertbooking.repository.Page;
 import com.concertbooking.service.BookingService;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class ConcertTicketBookingSystem {
+    /**
+     * Picks the engine behind {@code bookTickets} and {@code cancelBooking}: {@code cas} (the default),
+     * {@code lock} or {@code pipeline}.
+     */
+    public static final String ENGINE_PROPERTY = "concertbooking.engine";
+    /**
+     * Directory for the booking journal. When set, bookings survive a restart; see {@link #recoverBookings}.
+     */
+    public static final String JOURNAL_DIR_PROPERTY = "concertbooking.journal.dir";
+    /**
+     * {@code GROUP_COMMIT} (the default) or {@code PER_OPERATION}.
+     */
+    public static final String JOURNAL_SYNC_PROPERTY = "concertbooking.journal.sync";
+    /**
+     * Directory for snapshots of the journal. Needs a journal; recovery then starts from the latest
+     * snapshot and old journal segments are deleted.
+     */
+    public static final String SNAPSHOT_DIR_PROPERTY = "concertbooking.snapshot.dir";
+    /**
+     * Seconds between background snapshots, 300 by default.
+     */
+    public static final String SNAPSHOT_INTERVAL_PROPERTY = "concertbooking.snapshot.interval";
+    /**
+     * Number of shards, 1 by default. Concerts are spread over the shards by consistent hashing on their
+     * id; each shard has its own repositories, engine, journal ({@code shard-<n>} under the journal and
+     * snapshot directories) and threads. Shard {@code n} issues ids with node id
+     * {@value TimeOrderedIdGenerator#NODE_ID_PROPERTY}{@code  + n}, so processes sharing a booking store
+     * need node ids at least this far apart. Keep the count fixed for a given journal directory.
+     */
+    public static final String SHARDS_PROPERTY = "concertbooking.shards";
+    /**
+     * Milliseconds between batches of the seat change feed, 250 by default; see {@link #subscribeToSeatChanges}.
+     */
+    public static final String FEED_INTERVAL_PROPERTY = "concertbooking.feed.interval";
+    private static final Duration MAX_ADMISSION_WAIT = Duration.ofMinutes(2);
+    // Long enough to outlast any client's retries, including ones spanning a seat hold.
+    private static final Duration IDEMPOTENCY_TTL = Duration.ofMinutes(15);
+    private static final int IDEMPOTENCY_CAPACITY = 1 << 18;
+    private static final Duration SOLD_OUT_CHECK_INTERVAL = Duration.ofMillis(250);
+    // Bookings are short; one still running after this is stuck, not slow.
+    private static final Duration SALES_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Comparator<Concert> BY_DATE_TIME = Comparator.comparing(Concert::getDateTime)
+            .thenComparing(Concert::getId);
+    // Numeric ids in the order they were issued, then older text ids, as the repositories order them.
+    private static final Comparator<Booking> BY_BOOKING_ID = Comparator
+            .comparing((Booking booking) -> booking.getNumericId() == Booking.NO_NUMERIC_ID)
+            .thenComparingLong(Booking::getNumericId)
+            .thenComparing(Booking::getId);
+
     private static volatile ConcertTicketBookingSystem instance;
-    private final ConcertRepository concertRepository;
-    private final BookingRepository bookingRepository;
-    private final BookingService bookingService;
+    private final BookingShard[] shards;
+    private final ShardRing ring;
+    private final int firstNodeId;
+    private final Map<String, WaitingRoom> waitingRooms = new ConcurrentHashMap<>();
+    private final SeatChangeFeed changeFeed;
+    // A request that failed because its seats were taken fails the same way on retry; other failures, and
+    // giving up in a waiting room, may be transient.
+    private final IdempotencyCache<Booking> bookingRequests = new IdempotencyCache<>(IDEMPOTENCY_CAPACITY, IDEMPOTENCY_TTL,
+            e -> e instanceof SeatNotAvailableException && !(e instanceof NotAdmittedException));
+    private final IdempotencyCache<Boolean> cancelRequests = new IdempotencyCache<>(IDEMPOTENCY_CAPACITY, IDEMPOTENCY_TTL,
+            e -> false);
 
     private ConcertTicketBookingSystem() {
-        this.concertRepository = new ConcertRepositoryImpl();
-        this.bookingRepository = new BookingRepositoryImpl();
-        this.bookingService = new BookingService(bookingRepository, concertRepository);
+        int shardCount = Integer.getInteger(SHARDS_PROPERTY, 1);
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException(SHARDS_PROPERTY + " must be positive");
+        }
+        this.firstNodeId = Integer.getInteger(TimeOrderedIdGenerator.NODE_ID_PROPERTY, 0);
+        if (firstNodeId + shardCount - 1 > TimeOrderedIdGenerator.MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ids " + firstNodeId + " to " + (firstNodeId + shardCount - 1)
+                    + " do not fit in " + TimeOrderedIdGenerator.NODE_BITS + " bits");
+        }
+        String journalDir = System.getProperty(JOURNAL_DIR_PROPERTY);
+        String snapshotDir = System.getProperty(SNAPSHOT_DIR_PROPERTY);
+        if (snapshotDir != null && journalDir == null) {
+            throw new IllegalStateException(SNAPSHOT_DIR_PROPERTY + " needs " + JOURNAL_DIR_PROPERTY + " to be set");
+        }
+        SyncMode syncMode = SyncMode.valueOf(System.getProperty(JOURNAL_SYNC_PROPERTY, SyncMode.GROUP_COMMIT.name()));
+        String engine = System.getProperty(ENGINE_PROPERTY, "cas");
+        // Threads cannot be pinned to cores from Java; giving each shard its share keeps the total at one per core.
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / shardCount);
+        this.changeFeed = new SeatChangeFeed(concertId -> shardFor(concertId).bookingRepository.findByConcertId(concertId),
+                Duration.ofMillis(Long.getLong(FEED_INTERVAL_PROPERTY, SeatChangeFeed.DEFAULT_INTERVAL.toMillis())),
+                SeatChangeFeed.DEFAULT_BACKLOG);
+        this.ring = new ShardRing(shardCount);
+        this.shards = new BookingShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            IdGenerator idGenerator = i == 0 ? TimeOrderedIdGenerator.getDefault() : new TimeOrderedIdGenerator(firstNodeId + i);
+            shards[i] = new BookingShard(i, threads, idGenerator, engine, shardDir(journalDir, i, shardCount), syncMode,
+                    shardDir(snapshotDir, i, shardCount), changeFeed::bookingChanged);
+        }
+    }
+
+    private static Path shardDir(String dir, int shard, int shardCount) {
+        if (dir == null) {
+            return null;
+        }
+        return shardCount == 1 ? Path.of(dir) : Path.of(dir, "shard-" + shard);
     }
 
     public static ConcertTicketBookingSystem getInstance() {
@@ -38,27 +157,422 @@ public class ConcertTicketBookingSystem {
 
     public void addConcert(Concert concert){
         if(concert != null){
-            concertRepository.addConcert(concert);
+            shardFor(concert.getId()).concertRepository.addConcert(concert);
         }
     }
 
-    public List<Concert> searchConcertByArtists(String artist){
-        return concertRepository.searchByArtist(artist);
+    /**
+     * Registers a venue's layout with every shard, so that {@link #recoverBookings} rebuilds that venue's
+     * concerts on the one shared layout. Register layouts before recovering.
+     */
+    public void addVenueLayout(VenueLayout layout){
+        for (BookingShard shard : shards) {
+            shard.concertRepository.addVenueLayout(layout);
+        }
+    }
+
+    public List<Concert> searchConcertsByArtist(String artist){
+        return gatherByDate(shard -> shard.concertRepository.searchByArtist(artist), Integer.MAX_VALUE);
+    }
+
+    public List<Concert> searchConcertsByVenue(String venue){
+        return gatherByDate(shard -> shard.concertRepository.searchByVenue(venue), Integer.MAX_VALUE);
+    }
+
+    public List<Concert> suggestConcertsByArtist(String query, int limit){
+        return gatherByDate(shard -> shard.concertRepository.searchByArtistPrefix(query, limit), limit);
     }
 
-    public List<Concert> searchConcerstByVenue(String venue){
-        return concertRepository.searchByVenue(venue);
+    public List<Concert> suggestConcertsByVenue(String query, int limit){
+        return gatherByDate(shard -> shard.concertRepository.searchByVenuePrefix(query, limit), limit);
     }
 
     public Optional<Concert> searchConcertById(String id){
-        return concertRepository.findById(id);
+        return shardFor(id).concertRepository.findById(id);
+    }
+
+    /**
+     * Seat counts by type and status from the concert's running counters, without touching any seat.
+     * Counts can trail the seats by the transitions in flight.
+     */
+    public AvailabilitySummary getAvailabilitySummary(String concertId) {
+        Concert concert = findConcert(concertId);
+        return concert.getAvailability().summary(concertId);
+    }
+
+    /**
+     * Latest seat map of the concert, a consistent picture of its seats for rendering; see {@link SeatMap}.
+     */
+    public SeatMap getSeatMap(String concertId) {
+        return findConcert(concertId).getSeatMap();
+    }
+
+    /**
+     * Starts sending the concert's seat and booking changes to a new subscriber in batches, beginning with
+     * a snapshot. Close the subscription when done with it.
+     */
+    public SeatFeedSubscription subscribeToSeatChanges(String concertId) {
+        return changeFeed.subscribe(findConcert(concertId));
     }
 
     public Booking bookTickets(String userId, String concertId, List<String> seatIds, User user){
-        return bookingService.bookSeat(userId, concertId, seatIds,user);
+        WaitingRoom waitingRoom = waitingRooms.get(concertId);
+        if (waitingRoom == null) {
+            return book(userId, concertId, seatIds, user);
+        }
+        WaitingRoom.Ticket ticket = waitingRoom.enter();
+        awaitAdmission(concertId, waitingRoom, ticket);
+        return bookAdmitted(waitingRoom, userId, concertId, seatIds, user);
+    }
+
+    /**
+     * Books once per idempotency key: a retry with the same key returns the first attempt's booking, or
+     * throws its {@link SeatNotAvailableException}, without touching any seat. A request that timed out in
+     * the waiting room ({@link NotAdmittedException}) is not remembered, so its retry queues again. Reusing a key for different
+     * seats is rejected with {@link IllegalArgumentException}.
+     */
+    public Booking bookTickets(String idempotencyKey, String userId, String concertId, List<String> seatIds, User user){
+        return bookingRequests.execute(idempotencyKey, Arrays.asList(userId, concertId, List.copyOf(seatIds)),
+                () -> bookTickets(userId, concertId, seatIds, user));
+    }
+
+    /**
+     * Books with a ticket from {@link #enterWaitingRoom}, for clients that queue explicitly and poll
+     * their position. The ticket must come from the concert's waiting room and have been admitted, and it
+     * is used up by the booking: a second booking needs a new ticket.
+     */
+    public Booking bookTickets(WaitingRoom.Ticket ticket, String userId, String concertId, List<String> seatIds, User user){
+        WaitingRoom waitingRoom = waitingRooms.get(concertId);
+        if (waitingRoom == null) {
+            return book(userId, concertId, seatIds, user);
+        }
+        if (!waitingRoom.redeem(ticket)) {
+            throw new IllegalStateException("Ticket " + ticket.getNumber() + " has not been admitted or was already used");
+        }
+        return bookAdmitted(waitingRoom, userId, concertId, seatIds, user);
+    }
+
+    /**
+     * Puts bookings for the concert behind a waiting room. Until {@link #closeWaitingRoom} is called every
+     * {@code bookTickets} call for it queues for admission first.
+     */
+    public void openWaitingRoom(String concertId, WaitingRoom waitingRoom) {
+        findConcert(concertId);
+        waitingRooms.put(concertId, waitingRoom);
+    }
+
+    public void closeWaitingRoom(String concertId) {
+        waitingRooms.remove(concertId);
+    }
+
+    public WaitingRoom.Ticket enterWaitingRoom(String concertId) {
+        WaitingRoom waitingRoom = waitingRooms.get(concertId);
+        if (waitingRoom == null) {
+            throw new IllegalArgumentException("Concert " + concertId + " has no waiting room");
+        }
+        return waitingRoom.enter();
+    }
+
+    private void awaitAdmission(String concertId, WaitingRoom waitingRoom, WaitingRoom.Ticket ticket) {
+        Concert concert = findConcert(concertId);
+        long deadline = System.nanoTime() + MAX_ADMISSION_WAIT.toNanos();
+        boolean admitted = false;
+        try {
+            // Wait in slices so the queue drains as soon as the concert sells out or is cancelled.
+            while (hasSeatsLeft(concert) && concert.getSalesGate().isOpen()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new NotAdmittedException("Timed out in the waiting room for concert " + concertId);
+                }
+                if (waitingRoom.awaitAdmission(ticket, Duration.ofNanos(Math.min(remaining, SOLD_OUT_CHECK_INTERVAL.toNanos())))) {
+                    admitted = true;
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotAdmittedException("Interrupted in the waiting room for concert " + concertId);
+        } finally {
+            // A buyer who gives up must not keep a place that someone behind them could use.
+            if (!admitted) {
+                waitingRoom.leave(ticket);
+            }
+        }
+        if (!concert.getSalesGate().isOpen()) {
+            throw salesClosed(concertId);
+        }
+        throw new SeatNotAvailableException("Concert " + concertId + " is sold out");
+    }
+
+    // The running counter is cheap enough for every waiter to poll. Its cells are summed without a lock,
+    // so a zero is confirmed against the seats before the queue is drained as sold out.
+    private static boolean hasSeatsLeft(Concert concert) {
+        return concert.getAvailability().total(SeatStatus.AVAILABLE) > 0 || concert.getAvailableSeatCount() > 0;
+    }
+
+    private Booking book(String userId, String concertId, List<String> seatIds, User user) {
+        return whileOnSale(concertId, () -> shardFor(concertId).bookingEngine.bookSeats(userId, concertId, seatIds, user));
+    }
+
+    private Booking bookAdmitted(WaitingRoom waitingRoom, String userId, String concertId, List<String> seatIds, User user) {
+        long start = System.nanoTime();
+        try {
+            return book(userId, concertId, seatIds, user);
+        } finally {
+            waitingRoom.recordLatency(System.nanoTime() - start);
+        }
     }
 
     public boolean cancelBooking(String bookingId) {
-        return bookingService.cancelBooking(bookingId);
+        return shardForBooking(bookingId).bookingEngine.cancelBooking(bookingId);
+    }
+
+    /**
+     * Removes a cancelled booking for good, for instance between load test runs, and returns whether there
+     * was one. A booking that still has its seats must be cancelled first.
+     */
+    public boolean deleteBooking(String bookingId) {
+        BookingShard shard = shardForBooking(bookingId);
+        Booking booking = shard.bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null) {
+            return false;
+        }
+        if (booking.getStatus() != BookingStatus.CANCELLED) {
+            throw new IllegalStateException("Booking " + bookingId + " must be cancelled before it is deleted");
+        }
+        shard.bookingRepository.deleteBooking(bookingId);
+        return true;
+    }
+
+    /**
+     * Cancels once per idempotency key; a retry with the same key returns the first answer.
+     */
+    public boolean cancelBooking(String idempotencyKey, String bookingId) {
+        return cancelRequests.execute(idempotencyKey, bookingId, () -> cancelBooking(bookingId));
+    }
+
+    public Booking bookBestAvailable(String userId, String concertId, int count, SeatType seatType, User user) {
+        return whileOnSale(concertId, () -> shardFor(concertId).bookingService.bookBestAvailable(userId, concertId, count, seatType, user));
+    }
+
+    public SeatHold holdTickets(String userId, String concertId, List<String> seatIds, User user) {
+        return holdTickets(userId, concertId, seatIds, user, BookingService.DEFAULT_HOLD_TTL);
+    }
+
+    public SeatHold holdTickets(String userId, String concertId, List<String> seatIds, User user, Duration ttl) {
+        return whileOnSale(concertId, () -> shardFor(concertId).bookingService.holdSeats(userId, concertId, seatIds, user, ttl));
+    }
+
+    public Booking confirmHold(String holdId) {
+        BookingService service = shardForHold(holdId).bookingService;
+        Optional<SeatHold> hold = service.findHold(holdId);
+        if (hold.isEmpty()) {
+            return service.confirmHold(holdId);
+        }
+        return whileOnSale(hold.get().getConcert(), () -> service.confirmHold(holdId));
+    }
+
+    public boolean releaseHold(String holdId) {
+        return shardForHold(holdId).bookingService.releaseHold(holdId);
+    }
+
+    /**
+     * Cancels a whole concert: closes its sales for good, waits for bookings and holds already under way,
+     * then cancels every booking and releases every hold for it in one parallel sweep. May be called again,
+     * for instance after it timed out; bookings it cancelled before are not counted again.
+     */
+    public ConcertCancellation cancelConcert(String concertId) {
+        Concert concert = findConcert(concertId);
+        try {
+            if (!concert.getSalesGate().close(SALES_DRAIN_TIMEOUT)) {
+                throw new IllegalStateException("Bookings for concert " + concertId + " still running after " + SALES_DRAIN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while closing sales for concert " + concertId, e);
+        }
+        return shardFor(concertId).bookingService.cancelAllBookings(concertId);
+    }
+
+    /**
+     * Restores bookings from the latest snapshot, if snapshots are configured, and the journal after it.
+     * Concerts held in the snapshot come back on their own; any others must be added again first. Returns
+     * how many bookings were restored, or 0 when no journal is configured. Background snapshots start
+     * once recovery is done. Shards recover in parallel.
+     */
+    public synchronized int recoverBookings() {
+        Duration interval = Duration.ofSeconds(Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, 300L));
+        return gather(shard -> List.of(shard.recoverBookings(interval))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Takes a snapshot now and returns the journal sequence number it covers; with several shards, each
+     * shard's journal is snapshotted and the lowest of their sequence numbers is returned. Call after
+     * {@link #recoverBookings}.
+     */
+    public synchronized long takeSnapshot() {
+        return gather(shard -> List.of(shard.takeSnapshot())).stream().mapToLong(Long::longValue).min().orElseThrow();
+    }
+
+    /**
+     * Shuts every shard down: stops engine writers, hold timers, snapshots and the change feed, and
+     * closes the journals. The system takes no further requests; meant for process exit.
+     */
+    public synchronized void shutdown() {
+        changeFeed.close();
+        for (BookingShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Booking and cancellation metrics collected so far. Empty unless
+     * {@value BookingMetrics#ENABLED_PROPERTY} is set or {@link BookingMetrics#setEnabled} was called.
+     */
+    public MetricsSnapshot getMetrics() {
+        return BookingMetrics.snapshot();
+    }
+
+    public List<Booking> findBookingsByUser(String userId) {
+        return gather(shard -> shard.bookingRepository.findByUserId(userId));
+    }
+
+    /**
+     * One page of a user's bookings in booking id order, which is the order they were made in, starting
+     * after {@code cursor}; {@code null} for the first page.
+     */
+    public Page<Booking> findBookingsByUser(String userId, String cursor, int limit) {
+        if (shards.length == 1) {
+            return shards[0].bookingRepository.findPageByUserId(userId, cursor, limit);
+        }
+        // Ids are unique and ordered across shards, so one cursor serves them all. One extra booking from
+        // each tells whether anything is left after this page.
+        int perShard = limit == Integer.MAX_VALUE ? limit : limit + 1;
+        List<Booking> bookings = gather(shard -> shard.bookingRepository.findPageByUserId(userId, cursor, perShard).getItems());
+        bookings.sort(BY_BOOKING_ID);
+        return Page.of(bookings.iterator(), limit, Cursors::afterBooking);
+    }
+
+    /**
+     * A user's bookings, read from each shard's index in turn without copying them; in booking id order
+     * within a shard.
+     */
+    public Stream<Booking> streamBookingsByUser(String userId) {
+        return concat(shard -> shard.bookingRepository.streamByUserId(userId));
+    }
+
+    /**
+     * Every booking, for exports and reconciliation, read from each shard's repository in turn without
+     * copying it. Splits by shard and by concert for parallel use.
+     */
+    public Stream<Booking> streamAllBookings() {
+        return concat(shard -> shard.bookingRepository.streamAll());
+    }
+
+    private <T> T whileOnSale(String concertId, Supplier<T> operation) {
+        return whileOnSale(findConcert(concertId), operation);
+    }
+
+    // Keeps cancelConcert from sweeping while this booking or hold is part way through.
+    private static <T> T whileOnSale(Concert concert, Supplier<T> operation) {
+        SalesGate gate = concert.getSalesGate();
+        if (!gate.enter()) {
+            throw salesClosed(concert.getId());
+        }
+        try {
+            return operation.get();
+        } finally {
+            gate.exit();
+        }
+    }
+
+    private static SeatNotAvailableException salesClosed(String concertId) {
+        return new SeatNotAvailableException("Sales for concert " + concertId + " are closed");
+    }
+
+    private BookingShard shardFor(String concertId) {
+        return shards.length == 1 ? shards[0] : shards[ring.shardFor(concertId)];
+    }
+
+    private Concert findConcert(String concertId) {
+        return shardFor(concertId).concertRepository.findById(concertId)
+                .orElseThrow(() -> new IllegalArgumentException("Concert does not exist"));
+    }
+
+    /**
+     * The shard that issued an id, read from the id's node bits, or {@code null} if no shard here did.
+     */
+    private BookingShard shardForId(String id) {
+        if (!CompactIds.isCompact(id)) {
+            return shards.length == 1 ? shards[0] : null;
+        }
+        int shard = TimeOrderedIdGenerator.nodeOf(CompactIds.parse(id)) - firstNodeId;
+        return shard >= 0 && shard < shards.length ? shards[shard] : null;
+    }
+
+    private BookingShard shardForBooking(String bookingId) {
+        BookingShard shard = shardForId(bookingId);
+        if (shard != null) {
+            return shard;
+        }
+        // Not issued by this process's shards, e.g. a legacy id from the journal: ask every shard.
+        for (BookingShard candidate : shards) {
+            if (candidate.bookingRepository.findById(bookingId).isPresent()) {
+                return candidate;
+            }
+        }
+        return shards[0];
+    }
+
+    // Holds live only in memory, so every hold id was issued by one of this process's shards.
+    private BookingShard shardForHold(String holdId) {
+        BookingShard shard = shardForId(holdId);
+        return shard == null ? shards[0] : shard;
+    }
+
+    /**
+     * Runs {@code query} on every shard at once, each on its own shard's threads and the first on the
+     * caller's, and concatenates the results.
+     */
+    private <T> List<T> gather(Function<BookingShard, List<T>> query) {
+        if (shards.length == 1) {
+            return query.apply(shards[0]);
+        }
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(shards.length - 1);
+        for (int i = 1; i < shards.length; i++) {
+            BookingShard shard = shards[i];
+            parts.add(CompletableFuture.supplyAsync(() -> query.apply(shard), shard.executor));
+        }
+        List<T> results = new ArrayList<>(query.apply(shards[0]));
+        for (CompletableFuture<List<T>> part : parts) {
+            try {
+                results.addAll(part.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    // Unlike flatMap, concatenating keeps each shard's stream splittable for parallel use.
+    private <T> Stream<T> concat(Function<BookingShard, Stream<T>> query) {
+        Stream<T> all = query.apply(shards[0]);
+        for (int i = 1; i < shards.length; i++) {
+            all = Stream.concat(all, query.apply(shards[i]));
+        }
+        return all;
+    }
+
+    // Each shard returns its concerts by date; merge them back into one date-ordered list.
+    private List<Concert> gatherByDate(Function<BookingShard, List<Concert>> query, int limit) {
+        List<Concert> concerts = gather(query);
+        if (shards.length == 1) {
+            return concerts;
+        }
+        concerts.sort(BY_DATE_TIME);
+        return concerts.size() > limit ? new ArrayList<>(concerts.subList(0, limit)) : concerts;
     }
 }
@@ -0,0 +1,62 @@
+package com.concertbooking.system;
+
+import java.util.Arrays;
+
+/**
+ * Consistent-hash ring mapping concert ids onto shards. Each shard owns many points on the ring, so
+ * concerts spread evenly, and adding a shard only moves the concerts that land on its new points.
+ */
+final class ShardRing {
+    private static final int POINTS_PER_SHARD = 128;
+
+    private final int[] points;
+    private final int[] owners;
+
+    ShardRing(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        long[] entries = new long[shardCount * POINTS_PER_SHARD];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                int hash = mix(shard * POINTS_PER_SHARD + point + 0x5BD1E995);
+                // Sort by hash, keeping the owner in the low bits.
+                entries[shard * POINTS_PER_SHARD + point] = ((long) hash << 32) | shard;
+            }
+        }
+        Arrays.sort(entries);
+        points = new int[entries.length];
+        owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = (int) (entries[i] >>> 32);
+            owners[i] = (int) entries[i];
+        }
+    }
+
+    /**
+     * The shard owning the first point at or after the key's hash, wrapping round the ring.
+     */
+    int shardFor(String key) {
+        int hash = mix(key.hashCode());
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    // Murmur3's finalizer: String.hashCode of similar ids differs only in the low bits.
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EB_CA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2_AE35;
+        return h ^ (h >>> 16);
+    }
+}